@@ -0,0 +1,204 @@
+package ru.hogwarts.school.cache;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Publishes committed entity changes to the local subscribers and, through {@code pg_notify}, to every other node.
+ * <p>
+ * The notification is issued inside the writing transaction, so PostgreSQL delivers it exactly when the
+ * transaction commits. Each node listens on a dedicated connection; after (re)connecting it runs the registered
+ * resync tasks, which compare cached entries against the row versions to recover from missed notifications.
+ */
+@Component
+public class ChangeBus implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeBus.class);
+
+    private static final int IDS_PER_NOTIFICATION = 500;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<EntityChange>> subscribers = new CopyOnWriteArrayList<>();
+    private final List<Runnable> resyncTasks = new CopyOnWriteArrayList<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+
+    @Value("${cache.coherence.enabled:true}")
+    private boolean enabled;
+    @Value("${cache.coherence.channel:hogwarts_changes}")
+    private String channel;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public ChangeBus(JdbcTemplate jdbcTemplate, DataSourceProperties dataSourceProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+    }
+
+    public void subscribe(Consumer<EntityChange> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void onReconnect(Runnable resyncTask) {
+        resyncTasks.add(resyncTask);
+    }
+
+    public void publish(EntityChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notifyNodes(change);
+            dispatch(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                notifyNodes(change);
+            }
+
+            @Override
+            public void afterCommit() {
+                dispatch(change);
+            }
+        });
+    }
+
+    private void dispatch(EntityChange change) {
+        for (Consumer<EntityChange> subscriber : subscribers) {
+            try {
+                subscriber.accept(change);
+            } catch (RuntimeException e) {
+                logger.error("Change subscriber failed for {}", change, e);
+            }
+        }
+    }
+
+    private void notifyNodes(EntityChange change) {
+        if (!enabled) {
+            return;
+        }
+        List<Long> ids = change.ids();
+        int from = 0;
+        do {
+            int to = Math.min(ids.size(), from + IDS_PER_NOTIFICATION);
+            String payload = encode(change.entity(), change.type(), ids.subList(from, to));
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, payload);
+            from = to;
+        } while (from < ids.size());
+    }
+
+    private String encode(String entity, ChangeType type, List<Long> ids) {
+        StringBuilder payload = new StringBuilder(nodeId).append('|').append(entity).append('|').append(type).append('|');
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append(ids.get(i));
+        }
+        return payload.toString();
+    }
+
+    private EntityChange decode(String payload) {
+        String[] parts = payload.split("\\|", -1);
+        if (parts.length != 4 || nodeId.equals(parts[0])) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>();
+        if (!parts[3].isEmpty()) {
+            for (String id : parts[3].split(",")) {
+                ids.add(Long.parseLong(id));
+            }
+        }
+        return new EntityChange(parts[1], ChangeType.valueOf(parts[2]), ids);
+    }
+
+    /**
+     * Opens the dedicated connection to listen on; it is kept outside the pool for as long as it works.
+     */
+    protected Connection openListenerConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    private void listen() {
+        long backoffMillis = 1000;
+        while (running) {
+            try (Connection connection = openListenerConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                logger.info("Listening for changes on channel {}", channel);
+                backoffMillis = 1000;
+                resyncTasks.forEach(Runnable::run);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        EntityChange change = decode(notification.getParameter());
+                        if (change != null) {
+                            dispatch(change);
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Change listener connection lost, reconnecting in {} ms", backoffMillis, e);
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, 30_000);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "change-bus-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.hogwarts.school.cache;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    /**
+     * Rows of the entity changed but their ids are not known, e.g. after a bulk statement.
+     */
+    RESET
+}
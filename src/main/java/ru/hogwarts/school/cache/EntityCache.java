@@ -0,0 +1,106 @@
+package ru.hogwarts.school.cache;
+
+import ru.hogwarts.school.jfr.CacheAccessEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Node-local, size-bounded LRU cache of entities by id. Entries are kept coherent across nodes by
+ * {@link ChangeBus}, so callers evict on every change they publish.
+ */
+public class EntityCache<V> {
+
+    private final String name;
+    private final Map<Long, V> entries;
+    private long evictions;
+
+    public EntityCache(String name, int maxSize) {
+        this.name = name;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public V get(Long id) {
+        V value;
+        synchronized (entries) {
+            value = entries.get(id);
+        }
+        CacheAccessEvent.record(name, id, value != null);
+        return value;
+    }
+
+    /**
+     * Returns a stamp to take before loading a missing entry; see {@link #putIfUnchanged}.
+     */
+    public long stamp() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    /**
+     * Caches a freshly loaded value unless an eviction happened since {@code stamp} was taken,
+     * in which case the value may already be stale.
+     */
+    public void putIfUnchanged(Long id, V value, long stamp) {
+        synchronized (entries) {
+            if (evictions == stamp) {
+                entries.put(id, value);
+            }
+        }
+    }
+
+    public void evict(Long id) {
+        synchronized (entries) {
+            evictions++;
+            entries.remove(id);
+        }
+    }
+
+    public void evictAll(Iterable<Long> ids) {
+        synchronized (entries) {
+            evictions++;
+            for (Long id : ids) {
+                entries.remove(id);
+            }
+        }
+    }
+
+    public void evictIf(Predicate<V> predicate) {
+        synchronized (entries) {
+            evictions++;
+            entries.values().removeIf(predicate);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            evictions++;
+            entries.clear();
+        }
+    }
+
+    public List<Long> keys() {
+        synchronized (entries) {
+            return new ArrayList<>(entries.keySet());
+        }
+    }
+
+    public List<V> values() {
+        synchronized (entries) {
+            return new ArrayList<>(entries.values());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+}
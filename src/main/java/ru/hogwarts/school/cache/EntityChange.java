@@ -0,0 +1,18 @@
+package ru.hogwarts.school.cache;
+
+import java.util.List;
+
+public record EntityChange(String entity, ChangeType type, List<Long> ids) {
+
+    public static final String STUDENT = "student";
+    public static final String FACULTY = "faculty";
+    public static final String AVATAR = "avatar";
+
+    public static EntityChange of(String entity, ChangeType type, Long id) {
+        return new EntityChange(entity, type, List.of(id));
+    }
+
+    public static EntityChange reset(String entity) {
+        return new EntityChange(entity, ChangeType.RESET, List.of());
+    }
+}
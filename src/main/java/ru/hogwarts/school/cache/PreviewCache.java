@@ -0,0 +1,126 @@
+package ru.hogwarts.school.cache;
+
+import ru.hogwarts.school.jfr.CacheAccessEvent;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Node-local LRU cache of avatar previews by student id, bounded by the total number of bytes rather than
+ * entries. Preview bytes are copied once into direct buffers, so hot previews neither sit on the heap nor get
+ * reallocated per request; readers get read-only views that stay valid even if the entry is evicted meanwhile.
+ */
+public class PreviewCache {
+
+    private final String name;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Map<Long, Preview> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private long evictions;
+
+    public PreviewCache(String name, long maxBytes) {
+        this.name = name;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxBytes / 8;
+    }
+
+    public Preview get(Long studentId) {
+        Preview preview;
+        synchronized (entries) {
+            preview = entries.get(studentId);
+        }
+        CacheAccessEvent.record(name, studentId, preview != null);
+        return preview == null ? null : preview.view();
+    }
+
+    /**
+     * Returns a stamp to take before loading a missing preview; see {@link #putIfUnchanged}.
+     */
+    public long stamp() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    /**
+     * Caches a freshly loaded preview unless an eviction happened since {@code stamp} was taken, and returns
+     * it either way. Previews larger than an eighth of the budget are returned without being cached.
+     */
+    public Preview putIfUnchanged(Long studentId, String mediaType, byte[] data, long stamp) {
+        if (data.length > maxEntryBytes) {
+            return new Preview(mediaType, ByteBuffer.wrap(data).asReadOnlyBuffer());
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length).put(data).flip();
+        Preview preview = new Preview(mediaType, buffer.asReadOnlyBuffer());
+        synchronized (entries) {
+            if (evictions == stamp) {
+                Preview previous = entries.put(studentId, preview);
+                if (previous != null) {
+                    usedBytes -= previous.size();
+                }
+                usedBytes += preview.size();
+                trim();
+            }
+        }
+        return preview.view();
+    }
+
+    public void evict(Long studentId) {
+        synchronized (entries) {
+            evictions++;
+            remove(studentId);
+        }
+    }
+
+    public void evictAll(Iterable<Long> studentIds) {
+        synchronized (entries) {
+            evictions++;
+            for (Long studentId : studentIds) {
+                remove(studentId);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            evictions++;
+            entries.clear();
+            usedBytes = 0;
+        }
+    }
+
+    public long getUsedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    private void remove(Long studentId) {
+        Preview removed = entries.remove(studentId);
+        if (removed != null) {
+            usedBytes -= removed.size();
+        }
+    }
+
+    private void trim() {
+        Iterator<Preview> eldest = entries.values().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    public record Preview(String mediaType, ByteBuffer data) {
+
+        public int size() {
+            return data.remaining();
+        }
+
+        Preview view() {
+            return new Preview(mediaType, data.duplicate());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.hogwarts.school.concurrency;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A concurrency limit that follows observed latency, AIMD style. A call that finishes within the target
+ * latency while at least half the limit is in use raises the limit by {@code 1/limit}, so by about one per
+ * round of calls; a slower or failed call cuts it by the backoff ratio, at most once per target latency so
+ * that one burst of slow calls counts as one signal. Callers over the limit wait in a bounded queue for a
+ * bounded time and are turned away otherwise.
+ */
+public class AdaptiveLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueued;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private long rejected;
+    private long lastDecreaseNanos;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueued, long targetLatencyMillis,
+                           double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.maxQueued = maxQueued;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.clamp(initialLimit, this.minLimit, this.maxLimit);
+        this.lastDecreaseNanos = System.nanoTime() - targetLatencyNanos;
+    }
+
+    /**
+     * Takes a permit, waiting up to {@code timeout} in the queue if the limit is reached.
+     *
+     * @return {@code false} if the queue is full or the wait timed out
+     */
+    public synchronized boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        if (queued >= maxQueued) {
+            rejected++;
+            return false;
+        }
+        queued++;
+        try {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (inFlight >= (int) limit) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejected++;
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            queued--;
+        }
+    }
+
+    /**
+     * Returns a permit and adjusts the limit by how the call went.
+     */
+    public synchronized void release(long latencyNanos, boolean succeeded) {
+        boolean busy = inFlight >= limit / 2;
+        inFlight--;
+        long now = System.nanoTime();
+        if (!succeeded || latencyNanos > targetLatencyNanos) {
+            if (now - lastDecreaseNanos >= targetLatencyNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseNanos = now;
+            }
+        } else if (busy) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns a permit without adjusting the limit, for calls whose latency says nothing about the load.
+     */
+    public synchronized void releaseWithoutSample() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.hogwarts.school.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import ru.hogwarts.school.concurrency.AdaptiveLimiter;
+import ru.hogwarts.school.web.AdmissionControlFilter;
+
+import java.util.List;
+
+/**
+ * Registers the {@link AdmissionControlFilter} with one limiter per class in {@code http.admission.classes},
+ * each configured under {@code http.admission.<class>.*}. It runs after the collection cache filter, so
+ * listings answered from the cache are never queued.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "http.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(Environment environment,
+                                                                                MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+        List<AdmissionControlFilter.EndpointClass> classes = binder
+                .bind("http.admission.classes", Bindable.listOf(String.class))
+                .orElse(List.of("expensive", "cheap"))
+                .stream()
+                .map(name -> endpointClass(environment, binder, meterRegistry, name.trim()))
+                .toList();
+        List<String> excluded = binder.bind("http.admission.excluded", Bindable.listOf(String.class)).orElse(List.of());
+        long retryAfterSeconds = environment.getProperty("http.admission.retry-after-seconds", Long.class, 1L);
+
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(excluded, classes, retryAfterSeconds));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 30);
+        return registration;
+    }
+
+    private AdmissionControlFilter.EndpointClass endpointClass(Environment environment, Binder binder,
+                                                                 MeterRegistry meterRegistry, String name) {
+        String prefix = "http.admission." + name + ".";
+        List<String> endpoints = binder.bind(prefix + "endpoints", Bindable.listOf(String.class)).orElse(List.of());
+        AdaptiveLimiter limiter = new AdaptiveLimiter(
+                environment.getProperty(prefix + "initial-limit", Integer.class, 16),
+                environment.getProperty(prefix + "min-limit", Integer.class, 2),
+                environment.getProperty(prefix + "max-limit", Integer.class, 64),
+                environment.getProperty(prefix + "queue-size", Integer.class, 16),
+                environment.getProperty(prefix + "target-latency-ms", Long.class, 200L),
+                environment.getProperty(prefix + "backoff-ratio", Double.class, 0.9));
+
+        Gauge.builder("http.admission.limit", limiter, AdaptiveLimiter::getLimit).tag("class", name).register(meterRegistry);
+        Gauge.builder("http.admission.in-flight", limiter, AdaptiveLimiter::getInFlight).tag("class", name).register(meterRegistry);
+        Gauge.builder("http.admission.queued", limiter, AdaptiveLimiter::getQueued).tag("class", name).register(meterRegistry);
+        FunctionCounter.builder("http.admission.rejected", limiter, AdaptiveLimiter::getRejected)
+                .tag("class", name)
+                .register(meterRegistry);
+
+        return new AdmissionControlFilter.EndpointClass(name,
+                endpoints.stream().map(AdmissionControlFilter.Endpoint::parse).toList(),
+                limiter,
+                environment.getProperty(prefix + "queue-timeout-ms", Long.class, 100L));
+    }
+}
@@ -0,0 +1,55 @@
+package ru.hogwarts.school.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.hogwarts.school.storage.AvatarStorage;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+import ru.hogwarts.school.storage.PackFileAvatarStorage;
+import ru.hogwarts.school.storage.PrefixRoutingAvatarStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Selects the avatar backend with {@code avatars.storage}: {@code filesystem} (one file per avatar, the
+ * default) or {@code pack} (memory-mapped segment files). In pack mode avatars stored as files before the
+ * switch are still served from {@code avatars.dir.path}.
+ */
+@Configuration
+public class AvatarStorageConfiguration {
+
+    /**
+     * A segment is mapped as a single buffer, which cannot exceed 2 GB.
+     */
+    private static final int MAX_SEGMENT_SIZE_MB = 2047;
+
+    @Bean
+    @ConditionalOnProperty(name = "avatars.storage", havingValue = "filesystem", matchIfMissing = true)
+    public AvatarStorage fileSystemAvatarStorage(@Value("${avatars.dir.path}") String avatarsDir) {
+        return new FileSystemAvatarStorage(Path.of(avatarsDir));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "avatars.storage", havingValue = "pack")
+    public PackFileAvatarStorage packFileAvatarStorage(@Value("${avatars.pack.dir}") String packDir,
+                                                       @Value("${avatars.pack.segment-size-mb:256}") int segmentSizeMb,
+                                                       @Value("${avatars.pack.compaction-threshold:0.5}") double threshold)
+            throws IOException {
+        if (segmentSizeMb < 1 || segmentSizeMb > MAX_SEGMENT_SIZE_MB) {
+            throw new IllegalArgumentException("avatars.pack.segment-size-mb must be between 1 and "
+                    + MAX_SEGMENT_SIZE_MB + ", got " + segmentSizeMb);
+        }
+        return new PackFileAvatarStorage(Path.of(packDir), (int) (segmentSizeMb * 1024L * 1024L), threshold);
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "avatars.storage", havingValue = "pack")
+    public AvatarStorage packRoutingAvatarStorage(PackFileAvatarStorage packFileAvatarStorage,
+                                                  @Value("${avatars.dir.path}") String avatarsDir) {
+        return new PrefixRoutingAvatarStorage(packFileAvatarStorage, new FileSystemAvatarStorage(Path.of(avatarsDir)));
+    }
+}
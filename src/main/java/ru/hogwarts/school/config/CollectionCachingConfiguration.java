@@ -0,0 +1,38 @@
+package ru.hogwarts.school.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import ru.hogwarts.school.web.CollectionCacheFilter;
+import ru.hogwarts.school.web.TableVersion;
+
+import java.util.List;
+
+/**
+ * Puts the {@link CollectionCacheFilter} in front of the collection endpoints listed in
+ * {@code http.collection-cache.paths}. It runs after the read-your-writes filter so that the version query is
+ * routed like the request itself.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "http.collection-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CollectionCachingConfiguration {
+
+    @Value("${http.collection-cache.paths:/faculty,/student,/student/latest}")
+    private List<String> paths;
+    @Value("${http.collection-cache.compression-threshold:1024}")
+    private int compressionThreshold;
+    @Value("${http.collection-cache.max-bytes:8388608}")
+    private long maxBytes;
+
+    @Bean
+    public FilterRegistrationBean<CollectionCacheFilter> collectionCacheFilter(TableVersion tableVersion) {
+        FilterRegistrationBean<CollectionCacheFilter> registration = new FilterRegistrationBean<>(
+                new CollectionCacheFilter(tableVersion, compressionThreshold, maxBytes));
+        registration.setUrlPatterns(paths.stream().map(String::trim).toList());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
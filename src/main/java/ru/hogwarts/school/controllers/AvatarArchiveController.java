@@ -0,0 +1,45 @@
+package ru.hogwarts.school.controllers;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.dto.ArchiveEntryResult;
+import ru.hogwarts.school.dto.StoredAvatar;
+import ru.hogwarts.school.services.AvatarArchiveService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+public class AvatarArchiveController {
+    private static final String ZIP_MEDIA_TYPE = "application/zip";
+
+    private final AvatarArchiveService avatarArchiveService;
+
+    public AvatarArchiveController(AvatarArchiveService avatarArchiveService) {
+        this.avatarArchiveService = avatarArchiveService;
+    }
+
+    @GetMapping(value = "/faculty/{id}/avatars.zip", produces = ZIP_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportAvatars(@PathVariable Long id) {
+        List<StoredAvatar> avatars = avatarArchiveService.getFacultyAvatars(id);
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename("faculty-" + id + "-avatars.zip")
+                .build();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(out -> avatarArchiveService.writeArchive(avatars, out));
+    }
+
+    @PostMapping(value = "/faculty/{id}/avatars.zip", consumes = ZIP_MEDIA_TYPE)
+    public ResponseEntity<List<ArchiveEntryResult>> importAvatars(@PathVariable Long id, InputStream archive)
+            throws IOException {
+        return ResponseEntity.ok(avatarArchiveService.importArchive(id, archive));
+    }
+}
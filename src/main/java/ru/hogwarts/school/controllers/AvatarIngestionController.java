@@ -0,0 +1,55 @@
+package ru.hogwarts.school.controllers;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.hogwarts.school.dto.AvatarJob;
+import ru.hogwarts.school.services.AvatarIngestionService;
+import ru.hogwarts.school.services.StudentService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+
+@RestController
+public class AvatarIngestionController {
+    private final AvatarIngestionService avatarIngestionService;
+
+    public AvatarIngestionController(AvatarIngestionService avatarIngestionService) {
+        this.avatarIngestionService = avatarIngestionService;
+    }
+
+    /**
+     * Queues the upload and answers {@code 202} with the job and its status URL. Jobs are kept in memory by the
+     * instance that accepted them: behind a load balancer the status URL answers {@code 404} on other instances,
+     * and an upload still queued when that instance stops is discarded, its job reported as failed until then.
+     */
+    @PostMapping(value = "/student/{id}/avatar/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<AvatarJob> submitAvatar(@PathVariable Long id, @RequestParam MultipartFile avatar)
+            throws IOException {
+        if (avatar.getSize() >= StudentService.MAX_AVATAR_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        AvatarJob job = avatarIngestionService.submit(id, avatar);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/student/avatar/jobs/{jobId}")
+                .buildAndExpand(job.id())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    @GetMapping("/student/avatar/jobs/{jobId}")
+    public ResponseEntity<AvatarJob> getJob(@PathVariable UUID jobId) {
+        AvatarJob job = avatarIngestionService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+}
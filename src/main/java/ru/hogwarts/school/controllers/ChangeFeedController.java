@@ -0,0 +1,27 @@
+package ru.hogwarts.school.controllers;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.services.ChangeFeedService;
+
+@RestController
+public class ChangeFeedController {
+    private final ChangeFeedService changeFeedService;
+
+    public ChangeFeedController(ChangeFeedService changeFeedService) {
+        this.changeFeedService = changeFeedService;
+    }
+
+    @GetMapping(value = "/student/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getStudentChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return changeFeedService.subscribeToStudents(lastEventId);
+    }
+
+    @GetMapping(value = "/faculty/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getFacultyChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return changeFeedService.subscribeToFaculties(lastEventId);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.hogwarts.school.controllers;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.hogwarts.school.dto.DeltaCursor;
+import ru.hogwarts.school.dto.DeltaResponse;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.services.DeltaSyncService;
+
+@RestController
+public class DeltaSyncController {
+    private static final int MAX_LIMIT = 1000;
+
+    private final DeltaSyncService deltaSyncService;
+
+    public DeltaSyncController(DeltaSyncService deltaSyncService) {
+        this.deltaSyncService = deltaSyncService;
+    }
+
+    @GetMapping("/student/delta")
+    public ResponseEntity<DeltaResponse<Student>> getStudentDelta(
+            @RequestParam(defaultValue = "0") String since,
+            @RequestParam(defaultValue = "500") int limit) {
+        DeltaCursor cursor = DeltaCursor.parse(since);
+        if (cursor == null || limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(deltaSyncService.getStudentDelta(cursor, Math.min(limit, MAX_LIMIT)));
+    }
+
+    @GetMapping("/faculty/delta")
+    public ResponseEntity<DeltaResponse<Faculty>> getFacultyDelta(
+            @RequestParam(defaultValue = "0") String since,
+            @RequestParam(defaultValue = "500") int limit) {
+        DeltaCursor cursor = DeltaCursor.parse(since);
+        if (cursor == null || limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(deltaSyncService.getFacultyDelta(cursor, Math.min(limit, MAX_LIMIT)));
+    }
+}
@@ -1,19 +1,25 @@
 package ru.hogwarts.school.controllers;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.hogwarts.school.dto.FacultyPatch;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.services.FacultyService;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/faculty")
 public class FacultyController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final FacultyService facultyService;
 
     public FacultyController(FacultyService facultyService) {
@@ -29,6 +35,32 @@ public class FacultyController {
         return ResponseEntity.ok(faculty);
     }
 
+    @GetMapping(value = "{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getFacultyFields(@PathVariable Long id, @RequestParam String fields) {
+        Map<String, Object> faculty = facultyService.getFacultyFieldsById(id, fields);
+        if (faculty == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(faculty);
+    }
+
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> getAllFacultyFields(
+            @RequestParam String fields,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+
+        if (page == null && size == null) {
+            return ResponseEntity.ok(facultyService.getFacultyFields(fields));
+        }
+        int pageNumber = page == null ? 0 : page;
+        int pageSize = size == null ? 20 : size;
+        if (pageNumber < 0 || pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(facultyService.getFacultyFields(fields, pageNumber, pageSize));
+    }
+
     @GetMapping
     public ResponseEntity<Collection<Faculty>> getAllFaculty() {
         return ResponseEntity.ok(facultyService.getAllFaculty());
@@ -68,6 +100,21 @@ public class FacultyController {
         return ResponseEntity.ok(updated);
     }
 
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> patchFaculty(@PathVariable Long id,
+                                             @RequestBody FacultyPatch patch,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = patch.version() != null ? patch.version() : VersionHeaders.parseIfMatch(ifMatch);
+        if (version == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+        }
+        if (patch.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        long newVersion = facultyService.patchFaculty(id, patch, version);
+        return ResponseEntity.noContent().eTag(String.valueOf(newVersion)).build();
+    }
+
     @DeleteMapping("{id}")
     public ResponseEntity<Faculty> deleteFaculty(@PathVariable Long id) {
         Faculty deletedFaculty = facultyService.deleteFaculty(id);
@@ -0,0 +1,64 @@
+package ru.hogwarts.school.controllers;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.hogwarts.school.dto.RecordingStatus;
+import ru.hogwarts.school.services.FlightRecorderService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/admin/jfr")
+public class FlightRecorderController {
+    private final FlightRecorderService flightRecorderService;
+
+    public FlightRecorderController(FlightRecorderService flightRecorderService) {
+        this.flightRecorderService = flightRecorderService;
+    }
+
+    @GetMapping
+    public ResponseEntity<RecordingStatus> getStatus() {
+        return ResponseEntity.ok(flightRecorderService.getStatus());
+    }
+
+    @PostMapping("/start")
+    public ResponseEntity<RecordingStatus> startRecording(@RequestParam(defaultValue = "30") long maxAgeMinutes) {
+        return ResponseEntity.ok(flightRecorderService.start(Duration.ofMinutes(maxAgeMinutes)));
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<RecordingStatus> stopRecording() {
+        RecordingStatus status = flightRecorderService.stop();
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    @GetMapping("/dump")
+    public void dumpRecording(HttpServletResponse response) throws IOException {
+        Path file = flightRecorderService.dump();
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"hogwarts.jfr\"");
+            response.setContentLengthLong(Files.size(file));
+            try (OutputStream os = response.getOutputStream()) {
+                Files.copy(file, os);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -1,32 +1,64 @@
 package ru.hogwarts.school.controllers;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.cache.PreviewCache;
+import ru.hogwarts.school.dto.BulkResult;
+import ru.hogwarts.school.dto.MultiGetResult;
+import ru.hogwarts.school.dto.StudentCard;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.StudentQuery;
+import ru.hogwarts.school.jfr.AvatarDownloadEvent;
 import ru.hogwarts.school.model.Avatar;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.services.StudentService;
+import ru.hogwarts.school.web.ChannelWriteListener;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongConsumer;
 
 @RestController
 @RequestMapping("/student")
 public class StudentController {
+    private static final int MAX_MULTI_GET_IDS = 1000;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_PREVIEWS = 500;
+    static final String PREVIEW_FRAMES_MEDIA_TYPE = "application/vnd.hogwarts.previews";
+    static final long END_OF_PREVIEWS = -1;
+    private static final int DOWNLOAD_CHUNK_SIZE = 16 * 1024;
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name", "surname", "age");
+
     private final StudentService studentService;
 
+    @Value("${avatars.download.timeout-ms:60000}")
+    private long downloadTimeoutMillis;
+
     public StudentController(StudentService studentService) {
         this.studentService = studentService;
 
@@ -41,11 +73,45 @@ public class StudentController {
         return ResponseEntity.ok(student);
     }
 
+    @GetMapping(value = "{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getStudentFields(@PathVariable Long id, @RequestParam String fields) {
+        Map<String, Object> student = studentService.getStudentFieldsById(id, fields);
+        if (student == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(student);
+    }
+
+    @GetMapping(params = {"fields", "!ids"})
+    public ResponseEntity<List<Map<String, Object>>> getAllStudentFields(
+            @RequestParam String fields,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+
+        if (page == null && size == null) {
+            return ResponseEntity.ok(studentService.getStudentFields(fields));
+        }
+        int pageNumber = page == null ? 0 : page;
+        int pageSize = size == null ? 20 : size;
+        if (pageNumber < 0 || pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(studentService.getStudentFields(fields, pageNumber, pageSize));
+    }
+
     @GetMapping
     public ResponseEntity<Collection<Student>> getAllStudents() {
         return ResponseEntity.ok(studentService.getAllStudents());
     }
 
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResult<Student>> getStudentsByIds(@RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_MULTI_GET_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(studentService.getStudentsByIds(ids));
+    }
+
     @GetMapping("/filterByAge")
     public ResponseEntity<Collection<Student>> findStudents(
             @RequestParam(required = false) Integer min,
@@ -85,6 +151,40 @@ public class StudentController {
         return ResponseEntity.ok(allStudents);
     }
 
+    @GetMapping("/query")
+    public ResponseEntity<Page<Student>> queryStudents(
+            @RequestParam(required = false) Integer age,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) String nameContains,
+            @RequestParam(required = false) Long facultyId,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        Optional<Sort.Direction> sortDirection = Sort.Direction.fromOptionalString(direction);
+        if (!SORTABLE_FIELDS.contains(sortBy) || sortDirection.isEmpty() || page < 0 || size <= 0
+                || size > MAX_PAGE_SIZE || (minAge != null && maxAge != null && minAge > maxAge)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection.get(), sortBy).and(Sort.by("id")));
+        StudentQuery query = new StudentQuery(age, minAge, maxAge, namePrefix, nameContains, facultyId);
+        return ResponseEntity.ok(studentService.queryStudents(query, pageable));
+    }
+
+    @GetMapping("/cards")
+    public ResponseEntity<Page<StudentCard>> getStudentCards(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(studentService.getStudentCards(page, size));
+    }
+
     @PostMapping
     public ResponseEntity<Student> createStudent(@RequestBody Student student) {
         Student createdStudent = studentService.createStudent(student);
@@ -100,12 +200,48 @@ public class StudentController {
         return ResponseEntity.ok(updated);
     }
 
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> patchStudent(@PathVariable Long id,
+                                             @RequestBody StudentPatch patch,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = patch.version() != null ? patch.version() : VersionHeaders.parseIfMatch(ifMatch);
+        if (version == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+        }
+        if (patch.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        long newVersion = studentService.patchStudent(id, patch, version);
+        return ResponseEntity.noContent().eTag(String.valueOf(newVersion)).build();
+    }
+
     @DeleteMapping("{id}")
     public ResponseEntity<Void> deleteStudent(@PathVariable Long id) {
         studentService.deleteStudent(id);
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<BulkResult> deleteStudents(@RequestBody List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_MULTI_GET_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(studentService.deleteStudents(ids));
+    }
+
+    @PostMapping("/bulk/delete-by-age")
+    public ResponseEntity<BulkResult> deleteStudentsByAge(@RequestParam int min, @RequestParam int max) {
+        if (min > max) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(studentService.deleteStudentsByAgeBetween(min, max));
+    }
+
+    @PostMapping("/bulk/reassign-faculty")
+    public ResponseEntity<BulkResult> reassignFaculty(@RequestParam Long from, @RequestParam Long to) {
+        return ResponseEntity.ok(studentService.reassignFaculty(from, to));
+    }
+
     @GetMapping("/{studentId}/faculty")
     public ResponseEntity<Faculty> getFacultyOfStudent(@PathVariable Long studentId) {
         Student student = studentService.getStudentById(studentId);
@@ -117,7 +253,7 @@ public class StudentController {
 
     @PostMapping(value = "/{id}/avatar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<String> uploadAvatar(@PathVariable Long id, @RequestParam MultipartFile avatar) throws IOException {
-        if (avatar.getSize() >= 1024 * 1024) {
+        if (avatar.getSize() >= StudentService.MAX_AVATAR_SIZE) {
             return ResponseEntity.badRequest().body("The size of avatar is too large");
         }
         studentService.uploadAvatar(id, avatar);
@@ -125,29 +261,109 @@ public class StudentController {
     }
 
     @GetMapping(value = "/{id}/avatar/preview")
-    public ResponseEntity<byte[]> downloadAvatar(@PathVariable Long id) {
-        Avatar avatar = studentService.findStudentAvatar(id);
+    public void downloadAvatarPreview(@PathVariable Long id, HttpServletResponse response) throws IOException {
+        PreviewCache.Preview preview = studentService.getAvatarPreview(id);
+        if (preview == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(avatar.getMediaType()));
-        headers.setContentLength(avatar.getPreview().length);
-        return ResponseEntity.status(HttpStatus.OK).headers(headers).body(avatar.getPreview());
+        AvatarDownloadEvent event = new AvatarDownloadEvent();
+        event.begin();
+        try {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(preview.mediaType());
+            response.setContentLength(preview.size());
+            ByteBuffer data = preview.data();
+            WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.studentId = id;
+                event.bytes = preview.size();
+                event.preview = true;
+                event.commit();
+            }
+        }
     }
 
+    /**
+     * Streams the previews of many students as length-prefixed binary frames: per frame the {@code long} student
+     * id, the media type as {@code writeUTF} and an {@code int} length followed by the bytes. A lone student id
+     * of {@value #END_OF_PREVIEWS} ends the stream. Students without a preview are left out.
+     */
+    @GetMapping(value = "/avatar/previews", params = "ids")
+    public void downloadAvatarPreviews(@RequestParam List<Long> ids, HttpServletResponse response) throws IOException {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_PREVIEWS) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(PREVIEW_FRAMES_MEDIA_TYPE);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(response.getOutputStream()));
+        WritableByteChannel channel = Channels.newChannel(out);
+        studentService.streamAvatarPreviews(ids, (studentId, preview) -> {
+            out.writeLong(studentId);
+            out.writeUTF(preview.mediaType());
+            out.writeInt(preview.size());
+            ByteBuffer data = preview.data();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        });
+        out.writeLong(END_OF_PREVIEWS);
+        out.flush();
+    }
+
+    /**
+     * Streams the avatar with non-blocking output through {@link ChannelWriteListener}. The async context is started
+     * on the servlet request directly rather than through Spring's {@code WebAsyncManager}: the transfer never
+     * dispatches back into MVC, so there is no result to hand over and no filter runs twice. Filters therefore
+     * return before the bytes are sent, which is acceptable here: the transfer needs no database connection or
+     * read-your-writes pinning, admission control excludes this endpoint, and the HTTP server observation is
+     * stopped by its own async listener once the transfer completes. Without async support the copy blocks.
+     */
     @GetMapping(value = "/{id}/avatar")
-    public void downloadAvatar(@PathVariable Long id, HttpServletResponse response) throws IOException {
+    public void downloadAvatar(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
         Avatar avatar = studentService.findStudentAvatar(id);
-
-        Path path = Path.of(avatar.getFilePath());
+        if (avatar == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
         response.setStatus(HttpServletResponse.SC_OK);
         response.setContentType(avatar.getMediaType());
         response.setContentLengthLong(avatar.getFileSize());
 
-        try (InputStream is = Files.newInputStream(path);
-             OutputStream os = response.getOutputStream()) {
-            is.transferTo(os);
+        AvatarDownloadEvent event = new AvatarDownloadEvent();
+        event.begin();
+        LongConsumer onFinish = transferred -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.studentId = id;
+                event.bytes = transferred;
+                event.commit();
+            }
+        };
+
+        ReadableByteChannel channel = studentService.openAvatar(avatar);
+        if (!request.isAsyncSupported()) {
+            long transferred = 0;
+            try (channel; OutputStream os = response.getOutputStream()) {
+                transferred = Channels.newInputStream(channel).transferTo(os);
+            } finally {
+                onFinish.accept(transferred);
+            }
+            return;
         }
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(downloadTimeoutMillis);
+        ChannelWriteListener.stream(asyncContext, channel, DOWNLOAD_CHUNK_SIZE, onFinish);
     }
 
     @GetMapping("/total")
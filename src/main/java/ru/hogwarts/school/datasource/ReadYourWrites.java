@@ -0,0 +1,25 @@
+package ru.hogwarts.school.datasource;
+
+/**
+ * Per-thread flag that keeps read-only transactions on the primary, set for requests that follow
+ * a mutation by the same client so that it never reads from a replica that has not caught up yet.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    public static void clear() {
+        PINNED.remove();
+    }
+}
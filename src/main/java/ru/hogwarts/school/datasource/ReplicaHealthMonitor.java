@@ -0,0 +1,95 @@
+package ru.hogwarts.school.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodically probes every replica and keeps the set of replicas that are reachable, in recovery
+ * and within the allowed replication lag. Reads fall back to the primary when none qualifies.
+ */
+public class ReplicaHealthMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaHealthMonitor.class);
+
+    private static final String LAG_QUERY = "SELECT pg_is_in_recovery(), " +
+            "CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final List<DataSource> replicas;
+    private final long maxLagMillis;
+    private final boolean[] healthy;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaHealthMonitor(List<DataSource> replicas, Duration maxLag) {
+        this.replicas = replicas;
+        this.maxLagMillis = maxLag.toMillis();
+        this.healthy = new boolean[replicas.size()];
+    }
+
+    @Scheduled(fixedDelayString = "${replica.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            boolean wasHealthy = healthy[i];
+            boolean isHealthy = probe(replicas.get(i), i);
+            synchronized (healthy) {
+                healthy[i] = isHealthy;
+            }
+            if (wasHealthy != isHealthy) {
+                logger.warn("Replica {} is now {}", i, isHealthy ? "healthy" : "excluded from reads");
+            }
+        }
+    }
+
+    /**
+     * Returns the next healthy replica in round-robin order, or {@code null} if reads must go to the primary.
+     */
+    public DataSource nextHealthyReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        synchronized (healthy) {
+            for (int i = 0; i < size; i++) {
+                int candidate = (start + i) % size;
+                if (healthy[candidate]) {
+                    return replicas.get(candidate);
+                }
+            }
+        }
+        return null;
+    }
+
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private boolean probe(DataSource replica, int index) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+            if (!rs.next() || !rs.getBoolean(1)) {
+                logger.error("Replica {} is not in recovery mode", index);
+                return false;
+            }
+            long lagMillis = rs.getLong(2);
+            if (lagMillis > maxLagMillis) {
+                logger.debug("Replica {} lags {} ms behind the primary", index, lagMillis);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            logger.debug("Replica {} health check failed", index, e);
+            return false;
+        }
+    }
+}
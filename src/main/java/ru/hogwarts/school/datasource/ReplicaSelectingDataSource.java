@@ -0,0 +1,40 @@
+package ru.hogwarts.school.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Read-only connection source: a healthy replica unless the current request is pinned to the primary
+ * or every replica is down or lagging.
+ */
+public class ReplicaSelectingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReplicaHealthMonitor healthMonitor;
+
+    public ReplicaSelectingDataSource(DataSource primary, ReplicaHealthMonitor healthMonitor) {
+        this.primary = primary;
+        this.healthMonitor = healthMonitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return select().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return select().getConnection(username, password);
+    }
+
+    private DataSource select() {
+        if (ReadYourWrites.isPinnedToPrimary()) {
+            return primary;
+        }
+        DataSource replica = healthMonitor.nextHealthyReplica();
+        return replica != null ? replica : primary;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.hogwarts.school.dto;
+
+public record ArchiveEntryResult(String entry, Long studentId, Status status, String message) {
+
+    public enum Status {
+        IMPORTED, SKIPPED, FAILED
+    }
+
+    public static ArchiveEntryResult imported(String entry, Long studentId) {
+        return new ArchiveEntryResult(entry, studentId, Status.IMPORTED, null);
+    }
+
+    public static ArchiveEntryResult skipped(String entry, Long studentId, String message) {
+        return new ArchiveEntryResult(entry, studentId, Status.SKIPPED, message);
+    }
+
+    public static ArchiveEntryResult failed(String entry, Long studentId, String message) {
+        return new ArchiveEntryResult(entry, studentId, Status.FAILED, message);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.hogwarts.school.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record AvatarJob(UUID id, Long studentId, Status status, String error, Instant submittedAt, Instant finishedAt) {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    public AvatarJob withStatus(Status status, String error) {
+        boolean finished = status == Status.DONE || status == Status.FAILED;
+        return new AvatarJob(id, studentId, status, error, submittedAt, finished ? Instant.now() : null);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.hogwarts.school.dto;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Position in a delta stream: the id of the writing transaction and the {@code row_version} of the last entry
+ * handed out. Clients treat it as an opaque {@code {xid}-{version}} string; {@code 0} starts from the beginning.
+ */
+public record DeltaCursor(long xid, long version) implements Comparable<DeltaCursor> {
+
+    public static final DeltaCursor START = new DeltaCursor(0, 0);
+
+    /**
+     * @return the parsed cursor, or {@code null} if the value is not a cursor handed out by this service
+     */
+    public static DeltaCursor parse(String value) {
+        if ("0".equals(value)) {
+            return START;
+        }
+        int dash = value.indexOf('-');
+        if (dash <= 0) {
+            return null;
+        }
+        try {
+            long xid = Long.parseLong(value.substring(0, dash));
+            long version = Long.parseLong(value.substring(dash + 1));
+            return xid < 0 || version < 0 ? null : new DeltaCursor(xid, version);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int compareTo(DeltaCursor other) {
+        int byXid = Long.compare(xid, other.xid);
+        return byXid != 0 ? byXid : Long.compare(version, other.version);
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        return xid + "-" + version;
+    }
+}
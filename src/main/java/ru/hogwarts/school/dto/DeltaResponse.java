@@ -0,0 +1,10 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+/**
+ * Rows changed and deleted after the requested cursor. {@code cursor} is passed as {@code since} of the next
+ * request; {@code hasMore} means the page was cut at the limit and the client should ask again right away.
+ */
+public record DeltaResponse<T>(DeltaCursor cursor, boolean hasMore, List<T> upserts, List<Long> deleted) {
+}
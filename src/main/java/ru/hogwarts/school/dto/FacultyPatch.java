@@ -0,0 +1,8 @@
+package ru.hogwarts.school.dto;
+
+public record FacultyPatch(String name, String colour, Long version) {
+
+    public boolean isEmpty() {
+        return name == null && colour == null;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+/**
+ * Entities found for a multi-get, in the order of the requested ids (duplicates removed), plus the ids
+ * that do not exist.
+ */
+public record MultiGetResult<T>(List<T> found, List<Long> missing) {
+}
@@ -0,0 +1,6 @@
+package ru.hogwarts.school.dto;
+
+import java.time.Instant;
+
+public record RecordingStatus(String state, Instant startedAt, long sizeBytes) {
+}
@@ -0,0 +1,23 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Flat read model of a student with the faculty and avatar metadata a list view needs, built directly by a
+ * JPQL constructor expression.
+ */
+public record StudentCard(Long id,
+                          String name,
+                          String surname,
+                          int age,
+                          Long facultyId,
+                          String facultyName,
+                          String facultyColour,
+                          String avatarUrl,
+                          String avatarMediaType,
+                          Long avatarSize) {
+
+    public StudentCard(Long id, String name, String surname, int age, Long facultyId, String facultyName,
+                       String facultyColour, Long avatarId, String avatarMediaType, Long avatarSize) {
+        this(id, name, surname, age, facultyId, facultyName, facultyColour,
+                avatarId == null ? null : "/student/" + id + "/avatar", avatarMediaType, avatarSize);
+    }
+}
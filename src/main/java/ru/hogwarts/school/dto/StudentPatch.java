@@ -0,0 +1,8 @@
+package ru.hogwarts.school.dto;
+
+public record StudentPatch(String name, String surname, Integer age, Long facultyId, Long version) {
+
+    public boolean isEmpty() {
+        return name == null && surname == null && age == null && facultyId == null;
+    }
+}
@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record StudentPreviewData(Long studentId, String mediaType, byte[] preview) {
+}
@@ -0,0 +1,9 @@
+package ru.hogwarts.school.dto;
+
+public record StudentQuery(Integer age,
+                           Integer minAge,
+                           Integer maxAge,
+                           String namePrefix,
+                           String nameContains,
+                           Long facultyId) {
+}
@@ -0,0 +1,9 @@
+package ru.hogwarts.school.dto;
+
+public interface Tombstone {
+    Long getId();
+
+    Long getRowXid();
+
+    Long getRowVersion();
+}
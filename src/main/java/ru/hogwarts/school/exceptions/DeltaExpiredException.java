@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exceptions;
+
+public class DeltaExpiredException extends RuntimeException {
+    public DeltaExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exceptions;
+
+public class FacultyNotFoundException extends RuntimeException {
+    public FacultyNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -1,10 +1,13 @@
 package ru.hogwarts.school.exceptions;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.hogwarts.school.dto.RecordingStatus;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -13,4 +16,41 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleStudentNotFound(StudentNotFoundException ex) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(FacultyNotFoundException.class)
+    public ResponseEntity<String> handleFacultyNotFound(FacultyNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<String> handleVersionConflict(VersionConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("The entity was modified concurrently");
+    }
+
+    @ExceptionHandler(DeltaExpiredException.class)
+    public ResponseEntity<String> handleDeltaExpired(DeltaExpiredException ex) {
+        return ResponseEntity.status(HttpStatus.GONE).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(UnknownFieldException.class)
+    public ResponseEntity<String> handleUnknownField(UnknownFieldException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(IngestionQueueFullException.class)
+    public ResponseEntity<String> handleIngestionQueueFull(IngestionQueueFullException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(RecordingAlreadyRunningException.class)
+    public ResponseEntity<RecordingStatus> handleRecordingAlreadyRunning(RecordingAlreadyRunningException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getStatus());
+    }
+}
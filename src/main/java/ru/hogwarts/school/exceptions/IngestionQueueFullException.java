@@ -0,0 +1,14 @@
+package ru.hogwarts.school.exceptions;
+
+public class IngestionQueueFullException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public IngestionQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
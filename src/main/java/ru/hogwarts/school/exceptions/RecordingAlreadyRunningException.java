@@ -0,0 +1,16 @@
+package ru.hogwarts.school.exceptions;
+
+import ru.hogwarts.school.dto.RecordingStatus;
+
+public class RecordingAlreadyRunningException extends RuntimeException {
+    private final RecordingStatus status;
+
+    public RecordingAlreadyRunningException(RecordingStatus status) {
+        super("A flight recording is already running");
+        this.status = status;
+    }
+
+    public RecordingStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exceptions;
+
+public class UnknownFieldException extends RuntimeException {
+    public UnknownFieldException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,131 @@
+package ru.hogwarts.school.feed;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.cache.ChangeType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Change feed of one entity type: a ring buffer of recent events for {@code Last-Event-ID} resume
+ * and the set of connected subscribers.
+ * <p>
+ * Event ids are {@code <epoch>-<sequence>}, where the epoch identifies this node's lifetime. A client that
+ * resumes from an unknown epoch or from an event that has already left the buffer gets a {@code reset}
+ * event and should reload the collection.
+ */
+public class ChangeFeed {
+
+    private final String entity;
+    private final int historySize;
+    private final int subscriberBufferSize;
+    private final Executor executor;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Deque<FeedEvent> history = new ArrayDeque<>();
+    private final List<FeedSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private long sequence;
+
+    public ChangeFeed(String entity, int historySize, int subscriberBufferSize, Executor executor) {
+        this.entity = entity;
+        this.historySize = historySize;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Registers a subscriber and replays the events after {@code lastEventId}. The replay is offered under the
+     * same lock that {@link #publish} fans out under, so later events cannot overtake it.
+     */
+    public SseEmitter subscribe(String lastEventId, long timeoutMillis) {
+        SseEmitter emitter = createEmitter(timeoutMillis);
+        FeedSubscriber subscriber = new FeedSubscriber(emitter, subscriberBufferSize, executor);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        synchronized (history) {
+            List<FeedEvent> replay = lastEventId == null ? List.of() : eventsAfter(lastEventId);
+            subscribers.add(subscriber);
+            for (FeedEvent event : replay) {
+                if (!subscriber.offer(event)) {
+                    subscribers.remove(subscriber);
+                    break;
+                }
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Appends an event and hands it to every subscriber. Offering only enqueues into the subscriber's buffer,
+     * so it is done under the history lock to keep every subscriber's events in sequence order.
+     */
+    public void publish(ChangeType type, Long entityId, Object data) {
+        synchronized (history) {
+            FeedEvent event = new FeedEvent(epoch + "-" + (++sequence), entity, type, entityId, data);
+            history.addLast(event);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            for (FeedSubscriber subscriber : subscribers) {
+                if (!subscriber.offer(event)) {
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+    }
+
+    public void heartbeat() {
+        for (FeedSubscriber subscriber : subscribers) {
+            if (subscriber.isClosed()) {
+                subscribers.remove(subscriber);
+            } else {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Creates the emitter of a new subscriber; overridden in tests to capture what is sent.
+     */
+    protected SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private List<FeedEvent> eventsAfter(String lastEventId) {
+        int dash = lastEventId.indexOf('-');
+        long lastSequence;
+        try {
+            lastSequence = dash < 0 ? -1 : Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            lastSequence = -1;
+        }
+        boolean sameEpoch = dash > 0 && epoch.equals(lastEventId.substring(0, dash));
+        long oldest = history.isEmpty() ? sequence + 1 : sequence - history.size() + 1;
+        if (!sameEpoch || lastSequence < oldest - 1 || lastSequence > sequence) {
+            return List.of(new FeedEvent(epoch + "-" + sequence, entity, ChangeType.RESET, null, null));
+        }
+        List<FeedEvent> events = new ArrayList<>();
+        long current = oldest;
+        for (FeedEvent event : history) {
+            if (current > lastSequence) {
+                events.add(event);
+            }
+            current++;
+        }
+        return events;
+    }
+
+    private void remove(FeedSubscriber subscriber) {
+        subscriber.markClosed();
+        subscribers.remove(subscriber);
+    }
+}
@@ -0,0 +1,10 @@
+package ru.hogwarts.school.feed;
+
+import ru.hogwarts.school.cache.ChangeType;
+
+/**
+ * One entry of a change feed. {@code data} holds the committed entity for creations and updates,
+ * and is {@code null} for deletions and resets.
+ */
+public record FeedEvent(String id, String entity, ChangeType type, Long entityId, Object data) {
+}
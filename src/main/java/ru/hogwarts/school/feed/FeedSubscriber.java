@@ -0,0 +1,106 @@
+package ru.hogwarts.school.feed;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A connected SSE client with its own bounded buffer. Events are written by a shared executor, one drain
+ * task per subscriber at a time, so a slow client only fills its own buffer; when the buffer overflows the
+ * connection is closed and the client resumes with {@code Last-Event-ID}.
+ */
+class FeedSubscriber {
+
+    private static final FeedEvent HEARTBEAT = new FeedEvent(null, null, null, null, null);
+
+    private final SseEmitter emitter;
+    private final BlockingQueue<FeedEvent> buffer;
+    private final Executor executor;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    FeedSubscriber(SseEmitter emitter, int bufferSize, Executor executor) {
+        this.emitter = emitter;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.executor = executor;
+    }
+
+    /**
+     * @return {@code false} if the subscriber is closed or its buffer is full and it has been disconnected
+     */
+    boolean offer(FeedEvent event) {
+        if (closed) {
+            return false;
+        }
+        if (!buffer.offer(event)) {
+            close();
+            return false;
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    void heartbeat() {
+        if (!closed && buffer.offer(HEARTBEAT)) {
+            scheduleDrain();
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        if (!closed) {
+            closed = true;
+            buffer.clear();
+            emitter.complete();
+        }
+    }
+
+    void markClosed() {
+        closed = true;
+        buffer.clear();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            FeedEvent event;
+            while (!closed && (event = buffer.poll()) != null) {
+                send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            markClosed();
+        } finally {
+            draining.set(false);
+        }
+        if (!closed && !buffer.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void send(FeedEvent event) throws IOException {
+        if (event == HEARTBEAT) {
+            emitter.send(SseEmitter.event().comment("keep-alive"));
+            return;
+        }
+        SseEmitter.SseEventBuilder builder = SseEmitter.event()
+                .name(event.type().name().toLowerCase())
+                .data(event, MediaType.APPLICATION_JSON);
+        if (event.id() != null) {
+            builder.id(event.id());
+        }
+        emitter.send(builder);
+    }
+}
@@ -0,0 +1,25 @@
+package ru.hogwarts.school.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ru.hogwarts.school.AvatarDownload")
+@Label("Avatar Download")
+@Category({"Hogwarts", "Avatar"})
+@Description("Writing an avatar or its preview to the response")
+public class AvatarDownloadEvent extends Event {
+
+    @Label("Student Id")
+    public long studentId;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Preview")
+    public boolean preview;
+}
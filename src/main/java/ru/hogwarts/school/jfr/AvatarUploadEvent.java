@@ -0,0 +1,22 @@
+package ru.hogwarts.school.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ru.hogwarts.school.AvatarUpload")
+@Label("Avatar Upload")
+@Category({"Hogwarts", "Avatar"})
+@Description("Storing an uploaded avatar file and its database row")
+public class AvatarUploadEvent extends Event {
+
+    @Label("Student Id")
+    public long studentId;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
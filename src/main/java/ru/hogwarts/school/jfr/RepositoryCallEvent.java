@@ -0,0 +1,24 @@
+package ru.hogwarts.school.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ru.hogwarts.school.RepositoryCall")
+@Label("Repository Call")
+@Category({"Hogwarts", "Persistence"})
+@Description("Invocation of a Spring Data repository method")
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Rows")
+    @Description("Number of entities returned, or the update count of modifying queries")
+    public long rows;
+}
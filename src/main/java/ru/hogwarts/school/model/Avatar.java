@@ -14,7 +14,6 @@ public class Avatar {
     private Long fileSize;
     private String mediaType;
 
-    @Lob
     private byte[] preview;
 
     @OneToOne
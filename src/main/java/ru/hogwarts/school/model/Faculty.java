@@ -16,6 +16,17 @@ public class Faculty {
     private String name;
     private String colour;
 
+    @Version
+    private Long version;
+
+    @JsonIgnore
+    @Column(name = "row_version", insertable = false, updatable = false)
+    private Long rowVersion;
+
+    @JsonIgnore
+    @Column(name = "row_xid", insertable = false, updatable = false)
+    private Long rowXid;
+
     @OneToMany(mappedBy = "faculty")
     @JsonIgnore
     private Set<Student> student = new HashSet<>();
@@ -48,6 +59,22 @@ public class Faculty {
         this.colour = colour;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getRowVersion() {
+        return rowVersion;
+    }
+
+    public Long getRowXid() {
+        return rowXid;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
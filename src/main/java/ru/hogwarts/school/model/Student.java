@@ -1,5 +1,6 @@
 package ru.hogwarts.school.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 import java.util.Objects;
@@ -14,6 +15,17 @@ public class Student {
     private String surname;
     private int age;
 
+    @Version
+    private Long version;
+
+    @JsonIgnore
+    @Column(name = "row_version", insertable = false, updatable = false)
+    private Long rowVersion;
+
+    @JsonIgnore
+    @Column(name = "row_xid", insertable = false, updatable = false)
+    private Long rowXid;
+
     @ManyToOne (fetch = FetchType.LAZY)
     @JoinColumn(name = "faculty_id")
     private Faculty faculty;
@@ -56,6 +68,22 @@ public class Student {
         this.age = age;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getRowVersion() {
+        return rowVersion;
+    }
+
+    public Long getRowXid() {
+        return rowXid;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
@@ -3,9 +3,18 @@ package ru.hogwarts.school.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.hogwarts.school.dto.AvatarLocation;
+import ru.hogwarts.school.dto.AvatarPreviewData;
+import ru.hogwarts.school.dto.StoredAvatar;
+import ru.hogwarts.school.dto.StudentPreviewData;
 import ru.hogwarts.school.model.Avatar;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +23,44 @@ public interface AvatarRepository extends JpaRepository<Avatar, Long> {
 
     Page<Avatar> findByStudentId(Long studentId, Pageable pageable);
 
+    // no read-only transaction: both queries fill the preview cache and must read the primary, a lagging
+    // replica would put back a preview that a re-upload has just evicted
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarPreviewData(a.mediaType, a.preview) " +
+            "FROM Avatar a WHERE a.student.id = :studentId")
+    Optional<AvatarPreviewData> findPreviewByStudentId(@Param("studentId") Long studentId);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentPreviewData(a.student.id, a.mediaType, a.preview) " +
+            "FROM Avatar a WHERE a.student.id IN :studentIds")
+    List<StudentPreviewData> findPreviewsByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StoredAvatar(a.student.id, a.filePath, a.mediaType) " +
+            "FROM Avatar a WHERE a.student.faculty.id = :facultyId ORDER BY a.student.id")
+    List<StoredAvatar> findStoredByFacultyId(@Param("facultyId") Long facultyId);
+
+    @Query("SELECT a.filePath FROM Avatar a WHERE a.student.id IN :studentIds")
+    List<String> findFilePathsByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarLocation(a.id, a.filePath) FROM Avatar a " +
+            "WHERE a.id > :afterId AND a.id <= :untilId AND (a.student IS NULL OR NOT EXISTS " +
+            "(SELECT s.id FROM Student s WHERE s.id = a.student.id))")
+    List<AvatarLocation> findOrphanedInIdRange(@Param("afterId") long afterId, @Param("untilId") long untilId);
+
+    @Query("SELECT MAX(a.id) FROM Avatar a")
+    Long findMaxId();
+
+    @Query("SELECT a.filePath FROM Avatar a WHERE a.filePath IN :filePaths")
+    List<String> findFilePathsByFilePathIn(@Param("filePaths") Collection<String> filePaths);
+
+    @Query("SELECT a.filePath FROM Avatar a WHERE a.student.age BETWEEN :minAge AND :maxAge")
+    List<String> findFilePathsByStudentAgeBetween(@Param("minAge") int minAge, @Param("maxAge") int maxAge);
+
+    @Modifying
+    @Query("DELETE FROM Avatar a WHERE a.student.id IN :studentIds")
+    int bulkDeleteByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+
+    @Modifying
+    @Query("DELETE FROM Avatar a WHERE a.student.id IN " +
+            "(SELECT s.id FROM Student s WHERE s.age BETWEEN :minAge AND :maxAge)")
+    int bulkDeleteByStudentAgeBetween(@Param("minAge") int minAge, @Param("maxAge") int maxAge);
+
 }
@@ -1,14 +1,38 @@
 package ru.hogwarts.school.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.hogwarts.school.dto.IdVersion;
+import ru.hogwarts.school.dto.Tombstone;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface FacultyRepository extends JpaRepository<Faculty, Long> {
+public interface FacultyRepository extends JpaRepository<Faculty, Long>, FacultyRepositoryCustom {
+     // unlike findById this runs without a read-only transaction, so cache fills read the primary and a lagging
+     // replica cannot put back a faculty that a change notification has just evicted
+     Optional<Faculty> findFacultyById(Long id);
+
+     @Query("SELECT new ru.hogwarts.school.dto.IdVersion(f.id, f.version) FROM Faculty f WHERE f.id IN :ids")
+     List<IdVersion> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+     @Query(value = "SELECT * FROM faculty WHERE (row_xid, row_version) > (:sinceXid, :sinceVersion) " +
+             "AND row_xid < :untilXid ORDER BY row_xid, row_version LIMIT :limit", nativeQuery = true)
+     List<Faculty> findChangedSince(@Param("sinceXid") long sinceXid, @Param("sinceVersion") long sinceVersion,
+                                @Param("untilXid") long untilXid, @Param("limit") int limit);
+
+     @Query(value = "SELECT id, row_xid AS rowXid, row_version AS rowVersion FROM faculty_tombstone " +
+             "WHERE (row_xid, row_version) > (:sinceXid, :sinceVersion) AND row_xid < :untilXid " +
+             "ORDER BY row_xid, row_version LIMIT :limit", nativeQuery = true)
+     List<Tombstone> findTombstonesSince(@Param("sinceXid") long sinceXid, @Param("sinceVersion") long sinceVersion,
+                                         @Param("untilXid") long untilXid, @Param("limit") int limit);
+
      Faculty findByNameIgnoreCase(String name);
      Collection <Faculty> findByColourContainsIgnoreCase(String colour);
 
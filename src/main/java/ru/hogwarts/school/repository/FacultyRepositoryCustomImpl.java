@@ -0,0 +1,44 @@
+package ru.hogwarts.school.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.model.Faculty;
+
+import java.util.List;
+import java.util.Map;
+
+public class FacultyRepositoryCustomImpl implements FacultyRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int patch(Long id, long version, FacultyPatch patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Faculty> update = cb.createCriteriaUpdate(Faculty.class);
+        Root<Faculty> root = update.from(Faculty.class);
+
+        if (patch.name() != null) {
+            update.set(root.get("name"), patch.name());
+        }
+        if (patch.colour() != null) {
+            update.set(root.get("colour"), patch.colour());
+        }
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        update.where(cb.equal(root.get("id"), id), cb.equal(root.get("version"), version));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFields(List<String> fields, Long id, Integer page, Integer size) {
+        return SparseFields.select(entityManager, Faculty.class, SPARSE_FIELDS, fields, id, page, size);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.hogwarts.school.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import ru.hogwarts.school.exceptions.UnknownFieldException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Selects only the requested columns of an entity as a tuple query, without hydrating managed instances.
+ * Field names are mapped onto attribute paths by a whitelist; {@code faculty.id} style paths read the foreign
+ * key column and do not join.
+ */
+public final class SparseFields {
+
+    private SparseFields() {
+    }
+
+    /**
+     * Parses a {@code fields=id,name,age} parameter, keeping the request order and dropping duplicates.
+     *
+     * @throws UnknownFieldException if the list is empty or names a field outside {@code allowed}
+     */
+    public static List<String> parse(String fields, Set<String> allowed) {
+        List<String> parsed = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .distinct()
+                .toList();
+        if (parsed.isEmpty()) {
+            throw new UnknownFieldException("At least one field must be requested, allowed: " + allowed);
+        }
+        for (String field : parsed) {
+            if (!allowed.contains(field)) {
+                throw new UnknownFieldException("Unknown field '" + field + "', allowed: " + allowed);
+            }
+        }
+        return parsed;
+    }
+
+    static <T> List<Map<String, Object>> select(EntityManager entityManager, Class<T> type,
+                                                Map<String, String> paths, List<String> fields,
+                                                Long id, Integer page, Integer size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(type);
+
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            selections.add(path(root, paths.get(field)).alias(field));
+        }
+        query.multiselect(selections);
+        if (id != null) {
+            query.where(cb.equal(root.get("id"), id));
+        }
+        query.orderBy(cb.asc(root.get("id")));
+
+        TypedQuery<Tuple> typed = entityManager.createQuery(query);
+        if (page != null && size != null) {
+            typed.setFirstResult(page * size).setMaxResults(size);
+        }
+        List<Tuple> tuples = typed.getResultList();
+
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                row.put(element.getAlias(), tuple.get(element));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Path<?> path(Root<?> root, String attributePath) {
+        Path<?> path = root;
+        for (String attribute : attributePath.split("\\.")) {
+            path = path.get(attribute);
+        }
+        return path;
+    }
+}
@@ -1,16 +1,46 @@
 package ru.hogwarts.school.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.hogwarts.school.dto.IdVersion;
+import ru.hogwarts.school.dto.StudentCard;
+import ru.hogwarts.school.dto.Tombstone;
+import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface StudentRepository extends JpaRepository<Student, Long> {
+public interface StudentRepository extends JpaRepository<Student, Long>, JpaSpecificationExecutor<Student>,
+        StudentRepositoryCustom {
+    @EntityGraph(attributePaths = "faculty")
+    Optional<Student> findWithFacultyById(Long id);
+
+    @Query("SELECT s FROM Student s LEFT JOIN FETCH s.faculty WHERE s.id IN :ids")
+    List<Student> findWithFacultyByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT s.id FROM Student s WHERE s.faculty.id = :facultyId")
+    List<Long> findIdsByFacultyId(@Param("facultyId") Long facultyId);
+
+    @Query("SELECT new ru.hogwarts.school.dto.IdVersion(s.id, s.version) FROM Student s WHERE s.id IN :ids")
+    List<IdVersion> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT new ru.hogwarts.school.dto.StudentCard(s.id, s.name, s.surname, s.age, " +
+            "f.id, f.name, f.colour, a.id, a.mediaType, a.fileSize) " +
+            "FROM Student s LEFT JOIN s.faculty f " +
+            "LEFT JOIN Avatar a ON a.id = (SELECT MAX(a2.id) FROM Avatar a2 WHERE a2.student = s)",
+            countQuery = "SELECT COUNT(s) FROM Student s")
+    Page<StudentCard> findStudentCards(Pageable pageable);
+
     Student findStudentByNameContainsIgnoreCase(String name);
     Collection<Student> findStudentByAge(int age);
     Collection<Student> findByNameContainingIgnoreCase(String part);
@@ -28,4 +58,27 @@ Long countStudentsByFaculty(@Param("facultyId") Long facultyId);
 
     @Query(value = "SELECT * FROM student ORDER BY id DESC LIMIT 5", nativeQuery = true)
     List<Student> findTop5ByOrderByIdDescNative();
+
+    @Query(value = "SELECT * FROM student WHERE (row_xid, row_version) > (:sinceXid, :sinceVersion) " +
+            "AND row_xid < :untilXid ORDER BY row_xid, row_version LIMIT :limit", nativeQuery = true)
+    List<Student> findChangedSince(@Param("sinceXid") long sinceXid, @Param("sinceVersion") long sinceVersion,
+                               @Param("untilXid") long untilXid, @Param("limit") int limit);
+
+    @Query(value = "SELECT id, row_xid AS rowXid, row_version AS rowVersion FROM student_tombstone " +
+            "WHERE (row_xid, row_version) > (:sinceXid, :sinceVersion) AND row_xid < :untilXid " +
+            "ORDER BY row_xid, row_version LIMIT :limit", nativeQuery = true)
+    List<Tombstone> findTombstonesSince(@Param("sinceXid") long sinceXid, @Param("sinceVersion") long sinceVersion,
+                                        @Param("untilXid") long untilXid, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM Student s WHERE s.id IN :ids")
+    int bulkDeleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Student s WHERE s.age BETWEEN :minAge AND :maxAge")
+    int bulkDeleteByAgeBetween(@Param("minAge") int minAge, @Param("maxAge") int maxAge);
+
+    @Modifying
+    @Query("UPDATE Student s SET s.faculty = :to, s.version = s.version + 1 WHERE s.faculty = :from")
+    int reassignFaculty(@Param("from") Faculty from, @Param("to") Faculty to);
 }
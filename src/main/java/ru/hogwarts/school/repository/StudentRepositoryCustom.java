@@ -0,0 +1,34 @@
+package ru.hogwarts.school.repository;
+
+import ru.hogwarts.school.dto.StudentPatch;
+
+import java.util.List;
+import java.util.Map;
+
+public interface StudentRepositoryCustom {
+
+    /**
+     * Fields that can be requested through {@code ?fields=}, mapped onto entity attribute paths.
+     */
+    Map<String, String> SPARSE_FIELDS = Map.of(
+            "id", "id",
+            "name", "name",
+            "surname", "surname",
+            "age", "age",
+            "facultyId", "faculty.id");
+
+    /**
+     * Applies the non-null fields of the patch in a single {@code UPDATE ... WHERE id = ? AND version = ?}.
+     *
+     * @return the number of updated rows, {@code 0} if the student does not exist or the version is stale
+     */
+    int patch(Long id, long version, StudentPatch patch);
+
+    /**
+     * Selects only the given {@link #SPARSE_FIELDS} of the students ordered by id, one map per row.
+     *
+     * @param id restricts the result to a single student when not {@code null}
+     * @param page zero-based page number, the result is unpaged when {@code page} or {@code size} is {@code null}
+     */
+    List<Map<String, Object>> findFields(List<String> fields, Long id, Integer page, Integer size);
+}
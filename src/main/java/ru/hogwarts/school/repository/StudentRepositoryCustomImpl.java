@@ -0,0 +1,51 @@
+package ru.hogwarts.school.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import java.util.List;
+import java.util.Map;
+
+public class StudentRepositoryCustomImpl implements StudentRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int patch(Long id, long version, StudentPatch patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Student> update = cb.createCriteriaUpdate(Student.class);
+        Root<Student> root = update.from(Student.class);
+
+        if (patch.name() != null) {
+            update.set(root.get("name"), patch.name());
+        }
+        if (patch.surname() != null) {
+            update.set(root.get("surname"), patch.surname());
+        }
+        if (patch.age() != null) {
+            update.set(root.get("age"), patch.age());
+        }
+        if (patch.facultyId() != null) {
+            update.set(root.get("faculty"), entityManager.getReference(Faculty.class, patch.facultyId()));
+        }
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        update.where(cb.equal(root.get("id"), id), cb.equal(root.get("version"), version));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFields(List<String> fields, Long id, Integer page, Integer size) {
+        return SparseFields.select(entityManager, Student.class, SPARSE_FIELDS, fields, id, page, size);
+    }
+}
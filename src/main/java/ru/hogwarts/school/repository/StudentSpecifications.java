@@ -0,0 +1,74 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import ru.hogwarts.school.dto.StudentQuery;
+import ru.hogwarts.school.model.Student;
+
+import java.util.Locale;
+
+/**
+ * Builds student filters that map onto the indexes from {@code student-query-indexes.yaml}: name predicates
+ * compare {@code lower(name)} so that the expression indexes apply, and prefix matches are anchored
+ * {@code LIKE 'x%'} patterns.
+ */
+public final class StudentSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private StudentSpecifications() {
+    }
+
+    public static Specification<Student> matching(StudentQuery query) {
+        Specification<Student> spec = Specification.where(null);
+        if (query.age() != null) {
+            spec = spec.and(hasAge(query.age()));
+        }
+        if (query.minAge() != null) {
+            spec = spec.and(olderThanOrEqual(query.minAge()));
+        }
+        if (query.maxAge() != null) {
+            spec = spec.and(youngerThanOrEqual(query.maxAge()));
+        }
+        if (query.namePrefix() != null && !query.namePrefix().isBlank()) {
+            spec = spec.and(nameStartsWith(query.namePrefix()));
+        }
+        if (query.nameContains() != null && !query.nameContains().isBlank()) {
+            spec = spec.and(nameContains(query.nameContains()));
+        }
+        if (query.facultyId() != null) {
+            spec = spec.and(inFaculty(query.facultyId()));
+        }
+        return spec;
+    }
+
+    public static Specification<Student> hasAge(int age) {
+        return (root, query, cb) -> cb.equal(root.get("age"), age);
+    }
+
+    public static Specification<Student> olderThanOrEqual(int minAge) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("age"), minAge);
+    }
+
+    public static Specification<Student> youngerThanOrEqual(int maxAge) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("age"), maxAge);
+    }
+
+    public static Specification<Student> nameStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("name")), escape(prefix) + "%", ESCAPE);
+    }
+
+    public static Specification<Student> nameContains(String part) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("name")), "%" + escape(part) + "%", ESCAPE);
+    }
+
+    public static Specification<Student> inFaculty(Long facultyId) {
+        return (root, query, cb) -> cb.equal(root.get("faculty").get("id"), facultyId);
+    }
+
+    private static String escape(String value) {
+        return value.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
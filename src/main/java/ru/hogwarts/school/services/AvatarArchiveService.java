@@ -0,0 +1,211 @@
+package ru.hogwarts.school.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.ArchiveEntryResult;
+import ru.hogwarts.school.dto.StoredAvatar;
+import ru.hogwarts.school.exceptions.FacultyNotFoundException;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.storage.AvatarStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports and imports the avatars of a whole faculty as a ZIP archive with one {@code {studentId}.{ext}} entry
+ * per student. Both directions stream: the export copies stored files straight into the response and the
+ * import reads one entry at a time, handing it to a small pool whose bounded queue makes the reader store
+ * entries itself once the workers fall behind.
+ */
+@Service
+public class AvatarArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarArchiveService.class);
+
+    private final StudentService studentService;
+    private final AvatarRepository avatarRepository;
+    private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final AvatarStorage avatarStorage;
+    private final ThreadPoolExecutor executor;
+
+    public AvatarArchiveService(StudentService studentService,
+                                AvatarRepository avatarRepository,
+                                StudentRepository studentRepository,
+                                FacultyRepository facultyRepository,
+                                AvatarStorage avatarStorage,
+                                @Value("${avatars.archive.workers:4}") int workers,
+                                @Value("${avatars.archive.queue-capacity:8}") int queueCapacity) {
+        this.studentService = studentService;
+        this.avatarRepository = avatarRepository;
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.avatarStorage = avatarStorage;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "avatar-archive-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @throws FacultyNotFoundException if the faculty does not exist
+     */
+    @Transactional(readOnly = true)
+    public List<StoredAvatar> getFacultyAvatars(Long facultyId) {
+        if (!facultyRepository.existsById(facultyId)) {
+            throw new FacultyNotFoundException("Faculty " + facultyId + " not found");
+        }
+        return avatarRepository.findStoredByFacultyId(facultyId);
+    }
+
+    /**
+     * Writes the avatars as a ZIP archive. Avatars whose file is gone are left out, since the response is
+     * already committed by the time they are reached.
+     */
+    public void writeArchive(List<StoredAvatar> avatars, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // images are compressed already, deflating them again only costs CPU
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        for (StoredAvatar avatar : avatars) {
+            ReadableByteChannel channel;
+            try {
+                channel = avatarStorage.open(avatar.filePath());
+            } catch (IOException e) {
+                logger.warn("Avatar of student {} is missing from storage, leaving it out of the archive",
+                        avatar.studentId(), e);
+                continue;
+            }
+            try (InputStream in = Channels.newInputStream(channel)) {
+                zip.putNextEntry(new ZipEntry(entryName(avatar)));
+                in.transferTo(zip);
+                zip.closeEntry();
+            }
+        }
+        zip.finish();
+        logger.info("Was invoked method to export {} avatars", avatars.size());
+    }
+
+    /**
+     * Stores every {@code {studentId}.{ext}} entry of the archive as the avatar of that student and reports
+     * the outcome per entry in archive order. Entries of students outside the faculty and entries larger than
+     * the avatar limit are skipped.
+     *
+     * @throws FacultyNotFoundException if the faculty does not exist
+     */
+    public List<ArchiveEntryResult> importArchive(Long facultyId, InputStream archive) throws IOException {
+        if (!facultyRepository.existsById(facultyId)) {
+            throw new FacultyNotFoundException("Faculty " + facultyId + " not found");
+        }
+        Set<Long> members = new HashSet<>(studentRepository.findIdsByFacultyId(facultyId));
+
+        List<Future<ArchiveEntryResult>> results = new ArrayList<>();
+        ZipInputStream zip = new ZipInputStream(archive);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String name = entry.getName();
+            Long studentId = studentIdOf(name);
+            if (studentId == null || !members.contains(studentId)) {
+                results.add(CompletableFuture.completedFuture(
+                        ArchiveEntryResult.skipped(name, studentId, "No student of this faculty matches the entry name")));
+                continue;
+            }
+            byte[] content = zip.readNBytes(StudentService.MAX_AVATAR_SIZE);
+            if (content.length >= StudentService.MAX_AVATAR_SIZE) {
+                results.add(CompletableFuture.completedFuture(
+                        ArchiveEntryResult.skipped(name, studentId, "The avatar is too large")));
+                continue;
+            }
+            results.add(executor.submit(() -> store(name, studentId, content)));
+        }
+
+        List<ArchiveEntryResult> report = new ArrayList<>(results.size());
+        for (Future<ArchiveEntryResult> result : results) {
+            try {
+                report.add(result.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while importing avatars");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        logger.info("Was invoked method to import {} avatar archive entries into faculty {}", report.size(), facultyId);
+        return report;
+    }
+
+    private ArchiveEntryResult store(String name, Long studentId, byte[] content) {
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        String contentType = MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+        try {
+            studentService.uploadAvatar(studentId, fileName, contentType, content);
+            return ArchiveEntryResult.imported(name, studentId);
+        } catch (Exception e) {
+            logger.warn("Cannot import archive entry {} for student {}", name, studentId, e);
+            return ArchiveEntryResult.failed(name, studentId, e.getMessage());
+        }
+    }
+
+    /**
+     * Names the entry after the student with the extension the avatar was stored under, so that a re-import
+     * gets the same media type; locations without an extension fall back to {@code bin}.
+     */
+    private static String entryName(StoredAvatar avatar) {
+        String location = avatar.filePath();
+        String fileName = location.substring(Math.max(location.lastIndexOf('/'), location.lastIndexOf('\\')) + 1);
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 || dot == fileName.length() - 1 ? "bin" : fileName.substring(dot + 1);
+        return avatar.studentId() + "." + extension;
+    }
+
+    private static Long studentIdOf(String entryName) {
+        String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+        int dot = fileName.indexOf('.');
+        try {
+            return Long.valueOf(dot < 0 ? fileName : fileName.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package ru.hogwarts.school.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarJob;
+import ru.hogwarts.school.exceptions.IngestionQueueFullException;
+import ru.hogwarts.school.exceptions.StudentNotFoundException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts avatar uploads without persisting them on the request thread. The upload is spooled to disk and
+ * handed to a small worker pool behind a bounded queue; when the queue is full the upload is rejected so
+ * that callers back off instead of piling up on Tomcat threads and database connections.
+ * <p>
+ * Jobs live only in the memory of the node that accepted them. Their status is reported by that node alone,
+ * and uploads still queued when it stops, or spooled when it crashed, are not recovered: on shutdown the queued
+ * jobs are marked failed and their spool files are deleted, and on start the spool directory is cleared of
+ * whatever a previous run left behind. The spool directory must therefore not be shared between instances.
+ */
+@Service
+public class AvatarIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarIngestionService.class);
+    private static final String SPOOL_PREFIX = "avatar-";
+    private static final String SPOOL_SUFFIX = ".upload";
+
+    private final StudentService studentService;
+    private final Path spoolDir;
+    private final long retryAfterSeconds;
+    private final Duration jobRetention;
+    private final Duration shutdownTimeout;
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, AvatarJob> jobs = new ConcurrentHashMap<>();
+    private final Counter rejected;
+
+    public AvatarIngestionService(StudentService studentService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${avatars.ingest.spool-dir:${java.io.tmpdir}/hogwarts-avatar-spool}") String spoolDir,
+                                  @Value("${avatars.ingest.workers:2}") int workers,
+                                  @Value("${avatars.ingest.queue-capacity:100}") int queueCapacity,
+                                  @Value("${avatars.ingest.retry-after-seconds:5}") long retryAfterSeconds,
+                                  @Value("${avatars.ingest.job-retention-minutes:60}") long jobRetentionMinutes,
+                                  @Value("${avatars.ingest.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds) {
+        this.studentService = studentService;
+        this.spoolDir = Path.of(spoolDir);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.jobRetention = Duration.ofMinutes(jobRetentionMinutes);
+        this.shutdownTimeout = Duration.ofSeconds(shutdownTimeoutSeconds);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "avatar-ingest-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("avatar.ingest.queue", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("avatar.ingest.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        this.rejected = Counter.builder("avatar.ingest.rejected").register(meterRegistry);
+        discardLeftoverSpool();
+    }
+
+    /**
+     * Spools the upload and queues it for storage.
+     *
+     * @throws StudentNotFoundException    if the student does not exist
+     * @throws IngestionQueueFullException if the queue is full; nothing is kept in that case
+     */
+    public AvatarJob submit(Long studentId, MultipartFile file) throws IOException {
+        studentService.getStudentById(studentId);
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw queueFull();
+        }
+
+        Files.createDirectories(spoolDir);
+        Path spooled = Files.createTempFile(spoolDir, SPOOL_PREFIX + studentId + "-", SPOOL_SUFFIX);
+        file.transferTo(spooled);
+
+        AvatarJob job = new AvatarJob(UUID.randomUUID(), studentId, AvatarJob.Status.QUEUED, null, Instant.now(), null);
+        jobs.put(job.id(), job);
+        try {
+            executor.execute(new IngestionTask(job, file.getOriginalFilename(), file.getContentType(), spooled));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id());
+            Files.deleteIfExists(spooled);
+            throw queueFull();
+        }
+        return job;
+    }
+
+    public AvatarJob getJob(UUID id) {
+        return jobs.get(id);
+    }
+
+    private void process(AvatarJob job, String filename, String contentType, Path spooled) {
+        jobs.put(job.id(), job.withStatus(AvatarJob.Status.RUNNING, null));
+        try (InputStream content = Files.newInputStream(spooled)) {
+            studentService.uploadAvatar(job.studentId(), filename, contentType, content, Files.size(spooled));
+            jobs.put(job.id(), job.withStatus(AvatarJob.Status.DONE, null));
+        } catch (Exception e) {
+            logger.warn("Avatar ingestion job {} for student {} failed", job.id(), job.studentId(), e);
+            jobs.put(job.id(), job.withStatus(AvatarJob.Status.FAILED, e.getMessage()));
+        } finally {
+            deleteSpooled(spooled);
+        }
+    }
+
+    private void deleteSpooled(Path spooled) {
+        try {
+            Files.deleteIfExists(spooled);
+        } catch (IOException e) {
+            logger.warn("Cannot delete spooled avatar {}", spooled, e);
+        }
+    }
+
+    private void discardLeftoverSpool() {
+        if (!Files.isDirectory(spoolDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(spoolDir, SPOOL_PREFIX + "*" + SPOOL_SUFFIX)) {
+            int discarded = 0;
+            for (Path leftover : leftovers) {
+                deleteSpooled(leftover);
+                discarded++;
+            }
+            if (discarded > 0) {
+                logger.warn("Discarded {} avatar uploads spooled by a previous run in {}", discarded, spoolDir);
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot clear the avatar spool directory {}", spoolDir, e);
+        }
+    }
+
+    private IngestionQueueFullException queueFull() {
+        rejected.increment();
+        return new IngestionQueueFullException("Avatar ingestion queue is full, retry later", retryAfterSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.ingest.cleanup-interval-ms:60000}")
+    public void forgetFinishedJobs() {
+        Instant threshold = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt() != null && job.finishedAt().isBefore(threshold));
+    }
+
+    /**
+     * Lets the queue drain for a while, then fails the uploads that never started and deletes their spool files.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            return;
+        }
+        List<Runnable> abandoned = executor.shutdownNow();
+        for (Runnable runnable : abandoned) {
+            if (runnable instanceof IngestionTask task) {
+                jobs.put(task.job.id(), task.job.withStatus(AvatarJob.Status.FAILED, "Server shut down"));
+                deleteSpooled(task.spooled);
+            }
+        }
+        logger.warn("Avatar ingestion stopped with {} uploads still queued, they were discarded", abandoned.size());
+    }
+
+    private final class IngestionTask implements Runnable {
+        private final AvatarJob job;
+        private final String filename;
+        private final String contentType;
+        private final Path spooled;
+
+        IngestionTask(AvatarJob job, String filename, String contentType, Path spooled) {
+            this.job = job;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.spooled = spooled;
+        }
+
+        @Override
+        public void run() {
+            process(job, filename, contentType, spooled);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.hogwarts.school.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.cache.ChangeBus;
+import ru.hogwarts.school.cache.ChangeType;
+import ru.hogwarts.school.cache.EntityChange;
+import ru.hogwarts.school.exceptions.StudentNotFoundException;
+import ru.hogwarts.school.feed.ChangeFeed;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Turns committed changes from the {@link ChangeBus} into SSE change feeds for students and faculties.
+ * Changes are enriched with the current entity on a single background thread, so the writing request
+ * never waits for the fan-out.
+ */
+@Service
+public class ChangeFeedService {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedService.class);
+
+    private final ChangeBus changeBus;
+    private final StudentService studentService;
+    private final FacultyService facultyService;
+    private final ExecutorService enrichExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "change-feed-enrich");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService sendExecutor;
+    private final ChangeFeed studentFeed;
+    private final ChangeFeed facultyFeed;
+
+    @Value("${feed.subscriber-timeout-ms:1800000}")
+    private long subscriberTimeoutMillis;
+
+    public ChangeFeedService(ChangeBus changeBus,
+                             StudentService studentService,
+                             FacultyService facultyService,
+                             @Value("${feed.history-size:1000}") int historySize,
+                             @Value("${feed.subscriber-buffer-size:256}") int subscriberBufferSize,
+                             @Value("${feed.sender-threads:4}") int senderThreads) {
+        this.changeBus = changeBus;
+        this.studentService = studentService;
+        this.facultyService = facultyService;
+        this.sendExecutor = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "change-feed-send");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.studentFeed = new ChangeFeed(EntityChange.STUDENT, historySize, subscriberBufferSize, sendExecutor);
+        this.facultyFeed = new ChangeFeed(EntityChange.FACULTY, historySize, subscriberBufferSize, sendExecutor);
+    }
+
+    @PostConstruct
+    void subscribeToChanges() {
+        changeBus.subscribe(change -> enrichExecutor.execute(() -> publish(change)));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        enrichExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+    }
+
+    public SseEmitter subscribeToStudents(String lastEventId) {
+        return studentFeed.subscribe(lastEventId, subscriberTimeoutMillis);
+    }
+
+    public SseEmitter subscribeToFaculties(String lastEventId) {
+        return facultyFeed.subscribe(lastEventId, subscriberTimeoutMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${feed.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        studentFeed.heartbeat();
+        facultyFeed.heartbeat();
+    }
+
+    private void publish(EntityChange change) {
+        ChangeFeed feed = switch (change.entity()) {
+            case EntityChange.STUDENT -> studentFeed;
+            case EntityChange.FACULTY -> facultyFeed;
+            default -> null;
+        };
+        if (feed == null) {
+            return;
+        }
+        if (change.type() == ChangeType.RESET) {
+            feed.publish(ChangeType.RESET, null, null);
+            return;
+        }
+        for (Long id : change.ids()) {
+            try {
+                feed.publish(change.type(), id, change.type() == ChangeType.DELETED ? null : load(change.entity(), id));
+            } catch (RuntimeException e) {
+                logger.warn("Cannot load {} {} for the change feed", change.entity(), id, e);
+            }
+        }
+    }
+
+    private Object load(String entity, Long id) {
+        if (EntityChange.FACULTY.equals(entity)) {
+            return facultyService.getFacultyById(id);
+        }
+        try {
+            return studentService.getStudentById(id);
+        } catch (StudentNotFoundException e) {
+            return null;
+        }
+    }
+}
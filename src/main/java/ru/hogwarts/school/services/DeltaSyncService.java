@@ -0,0 +1,161 @@
+package ru.hogwarts.school.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.cache.EntityChange;
+import ru.hogwarts.school.dto.DeltaCursor;
+import ru.hogwarts.school.dto.DeltaResponse;
+import ru.hogwarts.school.dto.Tombstone;
+import ru.hogwarts.school.exceptions.DeltaExpiredException;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Delta sync over the {@code row_xid} and {@code row_version} columns, which database triggers set on every insert
+ * and update from the writing transaction's id and one shared sequence; deletions leave rows in the tombstone
+ * tables.
+ * <p>
+ * Versions are drawn when a row is written, not when its transaction commits, so paging by version alone could
+ * move a cursor past a row that commits later. Entries are therefore ordered by {@code (row_xid, row_version)}
+ * and only handed out when their transaction is older than the xmin of the current snapshot: every transaction
+ * below it has ended, and every transaction still running or yet to write has a larger id than any entry
+ * returned so far. Writers do not wait for each other; a transaction that stays open holds back the entries of
+ * later ones until it ends.
+ * <p>
+ * Tombstones older than the retention period are purged, and the highest purged position is kept as a
+ * watermark: a client whose cursor is below it may have missed deletions and must do a full resync.
+ */
+@Service
+public class DeltaSyncService {
+    private static final Logger logger = LoggerFactory.getLogger(DeltaSyncService.class);
+
+    private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${delta.tombstone-retention-days:30}")
+    private int retentionDays;
+
+    public DeltaSyncService(StudentRepository studentRepository,
+                            FacultyRepository facultyRepository,
+                            JdbcTemplate jdbcTemplate) {
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(readOnly = true)
+    public DeltaResponse<Student> getStudentDelta(DeltaCursor since, int limit) {
+        checkNotPurged(EntityChange.STUDENT, since);
+        long untilXid = oldestRunningXid();
+        return merge(since, limit,
+                studentRepository.findChangedSince(since.xid(), since.version(), untilXid, limit),
+                student -> new DeltaCursor(student.getRowXid(), student.getRowVersion()),
+                studentRepository.findTombstonesSince(since.xid(), since.version(), untilXid, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public DeltaResponse<Faculty> getFacultyDelta(DeltaCursor since, int limit) {
+        checkNotPurged(EntityChange.FACULTY, since);
+        long untilXid = oldestRunningXid();
+        return merge(since, limit,
+                facultyRepository.findChangedSince(since.xid(), since.version(), untilXid, limit),
+                faculty -> new DeltaCursor(faculty.getRowXid(), faculty.getRowVersion()),
+                facultyRepository.findTombstonesSince(since.xid(), since.version(), untilXid, limit));
+    }
+
+    @Scheduled(cron = "${delta.tombstone-purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeTombstones() {
+        purgeTombstones(EntityChange.STUDENT);
+        purgeTombstones(EntityChange.FACULTY);
+    }
+
+    private void purgeTombstones(String entity) {
+        List<DeltaCursor> purged = jdbcTemplate.query(
+                "WITH purged AS (DELETE FROM " + entity + "_tombstone " +
+                        "WHERE deleted_at < now() - make_interval(days => ?) RETURNING row_xid, row_version) " +
+                        "SELECT row_xid, row_version FROM purged ORDER BY row_xid DESC, row_version DESC LIMIT 1",
+                (rs, rowNum) -> new DeltaCursor(rs.getLong(1), rs.getLong(2)), retentionDays);
+        if (purged.isEmpty()) {
+            return;
+        }
+        DeltaCursor watermark = purged.get(0);
+        jdbcTemplate.update("INSERT INTO delta_watermark (entity, purged_xid, purged_version) VALUES (?, ?, ?) " +
+                "ON CONFLICT (entity) DO UPDATE " +
+                "SET purged_xid = EXCLUDED.purged_xid, purged_version = EXCLUDED.purged_version " +
+                "WHERE (delta_watermark.purged_xid, delta_watermark.purged_version) " +
+                "< (EXCLUDED.purged_xid, EXCLUDED.purged_version)",
+                entity, watermark.xid(), watermark.version());
+        logger.info("Purged {} tombstones up to {}", entity, watermark);
+    }
+
+    private void checkNotPurged(String entity, DeltaCursor since) {
+        if (DeltaCursor.START.equals(since)) {
+            return;
+        }
+        List<DeltaCursor> watermark = jdbcTemplate.query(
+                "SELECT purged_xid, purged_version FROM delta_watermark WHERE entity = ?",
+                (rs, rowNum) -> new DeltaCursor(rs.getLong(1), rs.getLong(2)), entity);
+        if (!watermark.isEmpty() && since.compareTo(watermark.get(0)) < 0) {
+            throw new DeltaExpiredException("Cursor " + since + " is older than the retained " + entity
+                    + " tombstones, a full resync is required");
+        }
+    }
+
+    /**
+     * Taken once per page, before the rows and tombstones are read, so that both lists stop at the same
+     * transaction and every entry below it is visible to the queries that follow.
+     */
+    private long oldestRunningXid() {
+        Long xid = jdbcTemplate.queryForObject("SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint",
+                Long.class);
+        return xid == null ? 0 : xid;
+    }
+
+    /**
+     * Merges changed rows and tombstones, each already ordered by cursor, into one page of at most
+     * {@code limit} entries and returns the cursor of the last entry as the next cursor.
+     */
+    private static <T> DeltaResponse<T> merge(DeltaCursor since, int limit,
+                                              List<T> rows, Function<T, DeltaCursor> cursorOf,
+                                              List<Tombstone> tombstones) {
+        List<T> upserts = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        DeltaCursor cursor = since;
+        int r = 0;
+        int t = 0;
+        while (upserts.size() + deleted.size() < limit && (r < rows.size() || t < tombstones.size())) {
+            boolean takeRow = t >= tombstones.size()
+                    || (r < rows.size()
+                        && cursorOf.apply(rows.get(r)).compareTo(tombstoneCursor(tombstones.get(t))) < 0);
+            if (takeRow) {
+                T row = rows.get(r++);
+                upserts.add(row);
+                cursor = cursorOf.apply(row);
+            } else {
+                Tombstone tombstone = tombstones.get(t++);
+                deleted.add(tombstone.getId());
+                cursor = tombstoneCursor(tombstone);
+            }
+        }
+        boolean hasMore = r < rows.size() || t < tombstones.size()
+                || rows.size() == limit || tombstones.size() == limit;
+        return new DeltaResponse<>(cursor, hasMore, upserts, deleted);
+    }
+
+    private static DeltaCursor tombstoneCursor(Tombstone tombstone) {
+        return new DeltaCursor(tombstone.getRowXid(), tombstone.getRowVersion());
+    }
+}
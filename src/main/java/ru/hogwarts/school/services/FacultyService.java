@@ -1,40 +1,130 @@
 package ru.hogwarts.school.services;
 
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.cache.ChangeBus;
+import ru.hogwarts.school.cache.ChangeType;
+import ru.hogwarts.school.cache.EntityCache;
+import ru.hogwarts.school.cache.EntityChange;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.dto.IdVersion;
+import ru.hogwarts.school.exceptions.FacultyNotFoundException;
+import ru.hogwarts.school.exceptions.VersionConflictException;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.FacultyRepositoryCustom;
+import ru.hogwarts.school.repository.SparseFields;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 
 @Service
 
 public class FacultyService {
     private final FacultyRepository facultyRepository;
+    private final ChangeBus changeBus;
+    private final EntityCache<Faculty> facultyCache;
 
-    public FacultyService(FacultyRepository facultyRepository) {
+    public FacultyService(FacultyRepository facultyRepository,
+                          ChangeBus changeBus,
+                          @Value("${cache.faculties.max-size:1000}") int facultyCacheSize) {
         this.facultyRepository = facultyRepository;
+        this.changeBus = changeBus;
+        this.facultyCache = new EntityCache<>("faculties", facultyCacheSize);
+    }
+
+    @PostConstruct
+    void subscribeToChanges() {
+        changeBus.subscribe(this::onChange);
+        changeBus.onReconnect(this::resyncCache);
+    }
+
+    private void onChange(EntityChange change) {
+        if (!EntityChange.FACULTY.equals(change.entity())) {
+            return;
+        }
+        if (change.type() == ChangeType.RESET) {
+            facultyCache.clear();
+        } else {
+            facultyCache.evictAll(change.ids());
+        }
+    }
+
+    private void resyncCache() {
+        List<Long> ids = facultyCache.keys();
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> versions = new HashMap<>();
+        for (IdVersion version : facultyRepository.findVersionsByIdIn(ids)) {
+            versions.put(version.id(), version.version());
+        }
+        facultyCache.evictIf(faculty -> !Objects.equals(versions.get(faculty.getId()), faculty.getVersion()));
     }
 
     public Faculty createFaculty(Faculty faculty) {
 
-        return facultyRepository.save(faculty);
+        Faculty saved = facultyRepository.save(faculty);
+        changeBus.publish(EntityChange.of(EntityChange.FACULTY, ChangeType.CREATED, saved.getId()));
+        return saved;
     }
 
     public Faculty findFaculty(long id) {
-        return facultyRepository.findById(id).get();
+        return findCached(id).get();
+    }
+
+    private Optional<Faculty> findCached(Long id) {
+        Faculty cached = facultyCache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long stamp = facultyCache.stamp();
+        Optional<Faculty> faculty = facultyRepository.findFacultyById(id);
+        faculty.ifPresent(value -> facultyCache.putIfUnchanged(id, value, stamp));
+        return faculty;
     }
 
+    /**
+     * Replaces the fields of a faculty. The version is checked only if the client sent one.
+     */
+    @Transactional
     public Faculty editFaculty(Faculty faculty) {
-        Faculty existing = findFaculty(faculty.getId());
+        Faculty existing = faculty.getId() == null ? null : facultyRepository.findById(faculty.getId()).orElse(null);
         if (existing == null) {
             return null;
         }
-        return facultyRepository.save(faculty); // ← должно быть так
+        if (faculty.getVersion() != null && !faculty.getVersion().equals(existing.getVersion())) {
+            throw new VersionConflictException("Faculty " + faculty.getId() + " was modified, version "
+                    + faculty.getVersion() + " is stale");
+        }
+        existing.setName(faculty.getName());
+        existing.setColour(faculty.getColour());
+        Faculty saved = facultyRepository.saveAndFlush(existing);
+        changeBus.publish(EntityChange.of(EntityChange.FACULTY, ChangeType.UPDATED, saved.getId()));
+        return saved;
+    }
+
+    public long patchFaculty(Long id, FacultyPatch patch, long version) {
+        if (facultyRepository.patch(id, version, patch) == 0) {
+            if (!facultyRepository.existsById(id)) {
+                throw new FacultyNotFoundException("Faculty not found");
+            }
+            throw new VersionConflictException("Faculty " + id + " was modified, version " + version + " is stale");
+        }
+        changeBus.publish(EntityChange.of(EntityChange.FACULTY, ChangeType.UPDATED, id));
+        return version + 1;
     }
 
+    @Transactional(readOnly = true)
     public Collection<Faculty> getAllFaculty() {
         return facultyRepository.findAll();
     }
@@ -43,22 +133,45 @@ public class FacultyService {
         Faculty faculty = facultyRepository.findById(id).orElse(null);
         if (faculty != null) {
             facultyRepository.deleteById(id);
+            changeBus.publish(EntityChange.of(EntityChange.FACULTY, ChangeType.DELETED, id));
         }
         return faculty;
     }
 
+    @Transactional(readOnly = true)
     public Collection<Faculty> findByColour(String colour) {
         return facultyRepository.findByColourContainsIgnoreCase(colour);
     }
 
+    @Transactional(readOnly = true)
     public Faculty findByName(String name) {
         return facultyRepository.findByNameIgnoreCase(name);
     }
 
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getFacultyFields(String fields) {
+        List<String> selected = SparseFields.parse(fields, FacultyRepositoryCustom.SPARSE_FIELDS.keySet());
+        return facultyRepository.findFields(selected, null, null, null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getFacultyFields(String fields, int page, int size) {
+        List<String> selected = SparseFields.parse(fields, FacultyRepositoryCustom.SPARSE_FIELDS.keySet());
+        return facultyRepository.findFields(selected, null, page, size);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getFacultyFieldsById(Long id, String fields) {
+        List<String> selected = SparseFields.parse(fields, FacultyRepositoryCustom.SPARSE_FIELDS.keySet());
+        List<Map<String, Object>> rows = facultyRepository.findFields(selected, id, 0, 1);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
     public Faculty getFacultyById(Long id) {
-        return facultyRepository.findById(id).orElse(null);
+        return findCached(id).orElse(null);
     }
 
+    @Transactional(readOnly = true)
     public Collection<Student> getStudentsByFacultyId(Long facultyId) {
         Faculty faculty = facultyRepository.findById(facultyId).orElse(null);
         if (faculty == null) {
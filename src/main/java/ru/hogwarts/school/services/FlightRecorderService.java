@@ -0,0 +1,79 @@
+package ru.hogwarts.school.services;
+
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.dto.RecordingStatus;
+import ru.hogwarts.school.exceptions.RecordingAlreadyRunningException;
+import ru.hogwarts.school.jfr.AvatarDownloadEvent;
+import ru.hogwarts.school.jfr.AvatarUploadEvent;
+import ru.hogwarts.school.jfr.CacheAccessEvent;
+import ru.hogwarts.school.jfr.RepositoryCallEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Service
+public class FlightRecorderService {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderService.class);
+
+    private Recording recording;
+
+    public synchronized boolean isRecording() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    /**
+     * @throws RecordingAlreadyRunningException if a recording is running; it is left untouched
+     */
+    public synchronized RecordingStatus start(Duration maxAge) {
+        if (isRecording()) {
+            throw new RecordingAlreadyRunningException(getStatus());
+        }
+        if (recording != null) {
+            recording.close();
+        }
+        recording = new Recording();
+        recording.setName("hogwarts");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.enable(AvatarUploadEvent.class);
+        recording.enable(AvatarDownloadEvent.class);
+        recording.enable(RepositoryCallEvent.class);
+        recording.enable(CacheAccessEvent.class);
+        recording.enable("jdk.ObjectAllocationSample").with("throttle", "150/s").withStackTrace();
+        recording.enable("jdk.GarbageCollection");
+        recording.start();
+        logger.info("Started flight recording, max age {}", maxAge);
+        return getStatus();
+    }
+
+    public synchronized RecordingStatus stop() {
+        if (!isRecording()) {
+            return null;
+        }
+        recording.stop();
+        logger.info("Stopped flight recording");
+        return getStatus();
+    }
+
+    public synchronized Path dump() throws IOException {
+        if (recording == null) {
+            return null;
+        }
+        Path file = Files.createTempFile("hogwarts-", ".jfr");
+        recording.dump(file);
+        return file;
+    }
+
+    public synchronized RecordingStatus getStatus() {
+        if (recording == null) {
+            return new RecordingStatus(RecordingState.NEW.name(), null, 0);
+        }
+        return new RecordingStatus(recording.getState().name(), recording.getStartTime(), recording.getSize());
+    }
+}
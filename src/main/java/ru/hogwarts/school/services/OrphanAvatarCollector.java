@@ -0,0 +1,252 @@
+package ru.hogwarts.school.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.dto.AvatarLocation;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.AvatarStorage;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Reclaims avatars nobody points to any more: rows of the {@code avatar} table whose student is gone, together
+ * with their stored file, and stored files that no row references, such as those left behind by re-uploads
+ * with another extension. Stored files are matched to rows by the student they were stored for and compared with
+ * {@link AvatarStorage#isSameLocation}, so the spelling of a path does not matter, and each deletion is checked
+ * again under the student's upload lock. Both sides are walked in small batches with a pause after each one, so a pass
+ * spreads its queries and deletes over time instead of competing with requests. A session-level advisory
+ * lock on a dedicated connection keeps the pass to one node at a time.
+ */
+@Service
+public class OrphanAvatarCollector {
+    private static final Logger logger = LoggerFactory.getLogger(OrphanAvatarCollector.class);
+    private static final long ADVISORY_LOCK_KEY = 0x48617667L;
+
+    private final AvatarRepository avatarRepository;
+    private final AvatarStorage avatarStorage;
+    private final StudentService studentService;
+    private final DataSourceProperties dataSourceProperties;
+    private final int batchSize;
+    private final int maxObjectsPerSecond;
+    private final Duration gracePeriod;
+    private final boolean dryRun;
+
+    private final Counter rowsScanned;
+    private final Counter rowsReclaimed;
+    private final Counter filesScanned;
+    private final Counter filesReclaimed;
+    private final AtomicLong running = new AtomicLong();
+    private final AtomicLong tableCursor = new AtomicLong();
+    private final AtomicLong tableEnd = new AtomicLong();
+    private final AtomicLong lastCompletedEpochSeconds = new AtomicLong();
+
+    @Value("${avatars.gc.enabled:true}")
+    private boolean enabled;
+
+    public OrphanAvatarCollector(AvatarRepository avatarRepository,
+                                 AvatarStorage avatarStorage,
+                                 StudentService studentService,
+                                 DataSourceProperties dataSourceProperties,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${avatars.gc.batch-size:100}") int batchSize,
+                                 @Value("${avatars.gc.max-objects-per-second:200}") int maxObjectsPerSecond,
+                                 @Value("${avatars.gc.grace-period-minutes:60}") long gracePeriodMinutes,
+                                 @Value("${avatars.gc.dry-run:false}") boolean dryRun) {
+        this.avatarRepository = avatarRepository;
+        this.avatarStorage = avatarStorage;
+        this.studentService = studentService;
+        this.dataSourceProperties = dataSourceProperties;
+        this.batchSize = batchSize;
+        this.maxObjectsPerSecond = maxObjectsPerSecond;
+        this.gracePeriod = Duration.ofMinutes(gracePeriodMinutes);
+        this.dryRun = dryRun;
+        this.rowsScanned = Counter.builder("avatar.gc.scanned").tag("source", "table").register(meterRegistry);
+        this.rowsReclaimed = Counter.builder("avatar.gc.reclaimed").tag("source", "table").register(meterRegistry);
+        this.filesScanned = Counter.builder("avatar.gc.scanned").tag("source", "storage").register(meterRegistry);
+        this.filesReclaimed = Counter.builder("avatar.gc.reclaimed").tag("source", "storage").register(meterRegistry);
+        Gauge.builder("avatar.gc.running", running, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("avatar.gc.table.progress", this, OrphanAvatarCollector::tableProgress).register(meterRegistry);
+        Gauge.builder("avatar.gc.last-completed", lastCompletedEpochSeconds, AtomicLong::get)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${avatars.gc.initial-delay-ms:300000}",
+            fixedDelayString = "${avatars.gc.interval-ms:3600000}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        try (Connection lockConnection = openLockConnection()) {
+            if (!tryLock(lockConnection)) {
+                logger.debug("Orphan avatar collection is running on another node");
+                return;
+            }
+            running.set(1);
+            try {
+                long started = System.nanoTime();
+                int rows = collectOrphanedRows();
+                int files = collectUnreferencedFiles();
+                lastCompletedEpochSeconds.set(Instant.now().getEpochSecond());
+                logger.info("Orphan avatar collection reclaimed {} rows and {} stored files in {} ms{}", rows, files,
+                        (System.nanoTime() - started) / 1_000_000, dryRun ? " (dry run)" : "");
+            } finally {
+                running.set(0);
+            }
+        } catch (SQLException | IOException e) {
+            logger.warn("Orphan avatar collection failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Opens the connection that holds the advisory lock for the pass; it is kept outside the pool.
+     */
+    protected Connection openLockConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    private boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, ADVISORY_LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Walks the avatar table in id windows of one batch and deletes rows whose student no longer exists, then
+     * their stored files.
+     */
+    private int collectOrphanedRows() throws InterruptedException {
+        Long maxId = avatarRepository.findMaxId();
+        tableEnd.set(maxId == null ? 0 : maxId);
+        tableCursor.set(0);
+        int reclaimed = 0;
+        while (tableCursor.get() < tableEnd.get()) {
+            long afterId = tableCursor.get();
+            long untilId = Math.min(tableEnd.get(), afterId + batchSize);
+            List<AvatarLocation> orphans = avatarRepository.findOrphanedInIdRange(afterId, untilId);
+            rowsScanned.increment(untilId - afterId);
+            if (!orphans.isEmpty()) {
+                logger.debug("Reclaiming orphaned avatar rows {}", orphans);
+                if (!dryRun) {
+                    avatarRepository.deleteAllByIdInBatch(orphans.stream().map(AvatarLocation::avatarId).toList());
+                    for (AvatarLocation orphan : orphans) {
+                        deleteStored(orphan.filePath());
+                    }
+                }
+                rowsReclaimed.increment(orphans.size());
+                reclaimed += orphans.size();
+            }
+            tableCursor.set(untilId);
+            pause((int) (untilId - afterId));
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Lists the storage in batches and deletes what no avatar row references. Anything stored within the grace
+     * period is kept, because the row of an upload is written only after its file, and so is anything that was
+     * not stored for a student.
+     */
+    private int collectUnreferencedFiles() throws IOException, InterruptedException {
+        Instant threshold = Instant.now().minus(gracePeriod);
+        int reclaimed = 0;
+        try (Stream<AvatarStorage.StoredObject> objects = avatarStorage.list()) {
+            Iterator<AvatarStorage.StoredObject> iterator = objects
+                    .filter(object -> object.storedAt().isBefore(threshold))
+                    .iterator();
+            List<AvatarStorage.StoredObject> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    reclaimed += collectUnreferenced(batch);
+                    pause(batch.size());
+                    batch.clear();
+                }
+            }
+        }
+        return reclaimed;
+    }
+
+    private int collectUnreferenced(List<AvatarStorage.StoredObject> objects) {
+        filesScanned.increment(objects.size());
+        Set<Long> studentIds = new HashSet<>();
+        for (AvatarStorage.StoredObject object : objects) {
+            if (object.studentId() != null) {
+                studentIds.add(object.studentId());
+            }
+        }
+        List<String> referenced = studentIds.isEmpty()
+                ? List.of()
+                : avatarRepository.findFilePathsByStudentIdIn(studentIds);
+        int reclaimed = 0;
+        for (AvatarStorage.StoredObject object : objects) {
+            if (object.studentId() == null || isReferenced(referenced, object.location())) {
+                continue;
+            }
+            logger.debug("Reclaiming unreferenced stored avatar {}", object.location());
+            if (dryRun || studentService.deleteUnreferencedAvatar(object.studentId(), object.location())) {
+                reclaimed++;
+            }
+        }
+        filesReclaimed.increment(reclaimed);
+        return reclaimed;
+    }
+
+    private boolean isReferenced(List<String> referenced, String location) {
+        for (String path : referenced) {
+            if (avatarStorage.isSameLocation(path, location)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deleteStored(String location) {
+        if (location == null) {
+            return;
+        }
+        try {
+            avatarStorage.delete(location);
+        } catch (IOException e) {
+            logger.warn("Cannot delete stored avatar {}", location, e);
+        }
+    }
+
+    private void pause(int objects) throws InterruptedException {
+        if (maxObjectsPerSecond > 0) {
+            Thread.sleep(objects * 1000L / maxObjectsPerSecond);
+        }
+    }
+
+    private double tableProgress() {
+        long end = tableEnd.get();
+        return end == 0 ? 1.0 : Math.min(1.0, (double) tableCursor.get() / end);
+    }
+}
@@ -1,134 +1,571 @@
 package ru.hogwarts.school.services;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.cache.ChangeBus;
+import ru.hogwarts.school.cache.ChangeType;
+import ru.hogwarts.school.cache.EntityCache;
+import ru.hogwarts.school.cache.EntityChange;
+import ru.hogwarts.school.cache.PreviewCache;
+import ru.hogwarts.school.concurrency.StripedLocks;
+import ru.hogwarts.school.dto.BulkResult;
+import ru.hogwarts.school.dto.IdVersion;
+import ru.hogwarts.school.dto.MultiGetResult;
+import ru.hogwarts.school.dto.StudentCard;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.StudentPreviewData;
+import ru.hogwarts.school.dto.StudentQuery;
+import ru.hogwarts.school.exceptions.FacultyNotFoundException;
 import ru.hogwarts.school.exceptions.StudentNotFoundException;
+import ru.hogwarts.school.exceptions.VersionConflictException;
+import ru.hogwarts.school.jfr.AvatarUploadEvent;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.SparseFields;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.repository.StudentRepositoryCustom;
+import ru.hogwarts.school.repository.StudentSpecifications;
+import ru.hogwarts.school.storage.AvatarStorage;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import static java.nio.file.StandardOpenOption.CREATE_NEW;
-
 @Service
 public class StudentService {
+    /**
+     * Avatars of this many bytes or more are rejected, whichever way they are uploaded.
+     */
+    public static final int MAX_AVATAR_SIZE = 1024 * 1024;
+
     private final StudentRepository studentRepository;
     private final AvatarRepository avatarRepository;
-    @Value("${avatars.dir.path}")
-    private String avatarsDir;
+    private final FacultyRepository facultyRepository;
+    private final ChangeBus changeBus;
+    private final EntityCache<Student> studentCache;
+    private final AvatarStorage avatarStorage;
+    private final PreviewCache previewCache;
+    private final StripedLocks avatarLocks;
     private static final Logger logger = LoggerFactory.getLogger(StudentService.class);
+    private static final int MULTI_GET_CHUNK_SIZE = 500;
+    private static final int PREVIEW_CHUNK_SIZE = 50;
 
 
-    public StudentService(StudentRepository studentRepository, AvatarRepository avatarRepository) {
+    public StudentService(StudentRepository studentRepository,
+                          AvatarRepository avatarRepository,
+                          FacultyRepository facultyRepository,
+                          ChangeBus changeBus,
+                          AvatarStorage avatarStorage,
+                          @Value("${cache.students.max-size:10000}") int studentCacheSize,
+                          @Value("${cache.previews.max-bytes:67108864}") long previewCacheBytes,
+                          @Value("${avatars.lock-stripes:64}") int avatarLockStripes) {
         this.studentRepository = studentRepository;
         this.avatarRepository = avatarRepository;
+        this.facultyRepository = facultyRepository;
+        this.changeBus = changeBus;
+        this.studentCache = new EntityCache<>("students", studentCacheSize);
+        this.avatarStorage = avatarStorage;
+        this.previewCache = new PreviewCache("previews", previewCacheBytes);
+        this.avatarLocks = new StripedLocks(avatarLockStripes);
+    }
+
+    @PostConstruct
+    void subscribeToChanges() {
+        changeBus.subscribe(this::onChange);
+        changeBus.onReconnect(this::resyncCache);
+        changeBus.onReconnect(previewCache::clear);
+    }
+
+    private void onChange(EntityChange change) {
+        if (EntityChange.STUDENT.equals(change.entity())) {
+            if (change.type() == ChangeType.RESET) {
+                studentCache.clear();
+                previewCache.clear();
+            } else {
+                studentCache.evictAll(change.ids());
+                if (change.type() == ChangeType.DELETED) {
+                    previewCache.evictAll(change.ids());
+                }
+            }
+        } else if (EntityChange.AVATAR.equals(change.entity())) {
+            if (change.type() == ChangeType.RESET) {
+                previewCache.clear();
+            } else {
+                previewCache.evictAll(change.ids());
+            }
+        } else if (EntityChange.FACULTY.equals(change.entity())) {
+            Set<Long> facultyIds = new HashSet<>(change.ids());
+            boolean reset = change.type() == ChangeType.RESET;
+            studentCache.evictIf(student -> student.getFaculty() != null
+                    && (reset || facultyIds.contains(student.getFaculty().getId())));
+        }
+    }
+
+    /**
+     * Evicts cached students whose row, or whose faculty row, has a different version in the database.
+     */
+    private void resyncCache() {
+        List<Long> ids = studentCache.keys();
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> studentVersions = toVersionMap(studentRepository.findVersionsByIdIn(ids));
+        studentCache.evictIf(student -> !Objects.equals(studentVersions.get(student.getId()), student.getVersion()));
+
+        Map<Long, Faculty> faculties = new HashMap<>();
+        for (Student student : studentCache.values()) {
+            if (student.getFaculty() != null) {
+                faculties.put(student.getFaculty().getId(), student.getFaculty());
+            }
+        }
+        if (!faculties.isEmpty()) {
+            Map<Long, Long> facultyVersions = toVersionMap(facultyRepository.findVersionsByIdIn(faculties.keySet()));
+            studentCache.evictIf(student -> student.getFaculty() != null && !Objects.equals(
+                    facultyVersions.get(student.getFaculty().getId()), student.getFaculty().getVersion()));
+        }
+        logger.info("Resynchronized student cache against {} rows", ids.size());
+    }
+
+    private static Map<Long, Long> toVersionMap(List<IdVersion> versions) {
+        Map<Long, Long> map = new HashMap<>();
+        for (IdVersion version : versions) {
+            map.put(version.id(), version.version());
+        }
+        return map;
     }
 
     public Student createStudent(Student student) {
         logger.info("Was invoked method for create student");
         student.setId(null);
-        return studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        changeBus.publish(EntityChange.of(EntityChange.STUDENT, ChangeType.CREATED, saved.getId()));
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public Student findStudent(long id) {
         return studentRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Студент с ID " + id + " не найден"));
     }
 
+    /**
+     * Replaces the fields of a student. The version is checked only if the client sent one, so clients that
+     * predate versioning keep working with last-write-wins.
+     */
+    @Transactional
     public Student editStudent(Student student) {
         logger.debug("Editing student with ID {}", student.getId());
-        if (!studentRepository.existsById(student.getId())) {
+        Student existing = student.getId() == null ? null : studentRepository.findById(student.getId()).orElse(null);
+        if (existing == null) {
             logger.error("Cannot edit student - no student with ID {}", student.getId());
             throw new StudentNotFoundException("Student not found");
         }
+        if (student.getVersion() != null && !student.getVersion().equals(existing.getVersion())) {
+            throw new VersionConflictException("Student " + student.getId() + " was modified, version "
+                    + student.getVersion() + " is stale");
+        }
         logger.info("Was invoked method to update student");
-        return studentRepository.save(student);
+        existing.setName(student.getName());
+        existing.setSurname(student.getSurname());
+        existing.setAge(student.getAge());
+        Long facultyId = student.getFaculty() == null ? null : student.getFaculty().getId();
+        existing.setFaculty(facultyId == null ? null : facultyRepository.findById(facultyId)
+                .orElseThrow(() -> new FacultyNotFoundException("Faculty " + facultyId + " not found")));
+        Student saved = studentRepository.saveAndFlush(existing);
+        changeBus.publish(EntityChange.of(EntityChange.STUDENT, ChangeType.UPDATED, saved.getId()));
+        return saved;
     }
 
+    public long patchStudent(Long id, StudentPatch patch, long version) {
+        logger.info("Was invoked method to patch student with ID {}", id);
+        if (patch.facultyId() != null && !facultyRepository.existsById(patch.facultyId())) {
+            throw new FacultyNotFoundException("Faculty " + patch.facultyId() + " not found");
+        }
+        if (studentRepository.patch(id, version, patch) == 0) {
+            if (!studentRepository.existsById(id)) {
+                logger.error("Cannot patch student - no student with ID {}", id);
+                throw new StudentNotFoundException("Student not found");
+            }
+            throw new VersionConflictException("Student " + id + " was modified, version " + version + " is stale");
+        }
+        changeBus.publish(EntityChange.of(EntityChange.STUDENT, ChangeType.UPDATED, id));
+        return version + 1;
+    }
+
+    @Transactional(readOnly = true)
     public Collection<Student> getAllStudents() {
         logger.warn("Someone is getting all students");
         return studentRepository.findAll();
     }
 
 
+    @Transactional
     public void deleteStudent(long id) {
         logger.info("Was invoked method to delete student with ID {}", id);
         if (!studentRepository.existsById(id)) {
             logger.error("Cannot delete student - no student with ID {}", id);
             throw new StudentNotFoundException("Student not found");
         }
+        deleteAvatarsAfterCommit(avatarRepository.findFilePathsByStudentIdIn(List.of(id)));
+        avatarRepository.bulkDeleteByStudentIdIn(List.of(id));
         studentRepository.deleteById(id);
+        changeBus.publish(EntityChange.of(EntityChange.STUDENT, ChangeType.DELETED, id));
+    }
+
+    @Transactional
+    public BulkResult deleteStudents(Collection<Long> ids) {
+        logger.info("Was invoked method to delete {} students by id", ids.size());
+        deleteAvatarsAfterCommit(avatarRepository.findFilePathsByStudentIdIn(ids));
+        int avatars = avatarRepository.bulkDeleteByStudentIdIn(ids);
+        int students = studentRepository.bulkDeleteByIdIn(ids);
+        changeBus.publish(new EntityChange(EntityChange.STUDENT, ChangeType.DELETED, List.copyOf(ids)));
+        return new BulkResult(students, avatars);
+    }
+
+    @Transactional
+    public BulkResult deleteStudentsByAgeBetween(int min, int max) {
+        logger.info("Was invoked method to delete students aged {} to {}", min, max);
+        deleteAvatarsAfterCommit(avatarRepository.findFilePathsByStudentAgeBetween(min, max));
+        int avatars = avatarRepository.bulkDeleteByStudentAgeBetween(min, max);
+        int students = studentRepository.bulkDeleteByAgeBetween(min, max);
+        changeBus.publish(EntityChange.reset(EntityChange.STUDENT));
+        return new BulkResult(students, avatars);
+    }
+
+    @Transactional
+    public BulkResult reassignFaculty(Long fromFacultyId, Long toFacultyId) {
+        logger.info("Was invoked method to move students from faculty {} to {}", fromFacultyId, toFacultyId);
+        Faculty from = facultyRepository.findById(fromFacultyId)
+                .orElseThrow(() -> new FacultyNotFoundException("Faculty " + fromFacultyId + " not found"));
+        Faculty to = facultyRepository.findById(toFacultyId)
+                .orElseThrow(() -> new FacultyNotFoundException("Faculty " + toFacultyId + " not found"));
+        int students = studentRepository.reassignFaculty(from, to);
+        changeBus.publish(EntityChange.reset(EntityChange.STUDENT));
+        return new BulkResult(students, 0);
+    }
+
+    private void deleteAvatarsAfterCommit(List<String> locations) {
+        if (locations.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                locations.forEach(StudentService.this::deleteStoredAvatar);
+            }
+        });
+    }
+
+    /**
+     * Deletes a stored avatar of a student unless the student's avatar row references it. The check runs under the
+     * lock uploads of that student hold while they store and save, so a file that an upload has just put at the
+     * same location is not deleted.
+     *
+     * @return {@code true} if the stored avatar was deleted
+     */
+    public boolean deleteUnreferencedAvatar(Long studentId, String location) {
+        Lock lock = avatarLocks.forKey(studentId);
+        lock.lock();
+        try {
+            for (String referenced : avatarRepository.findFilePathsByStudentIdIn(List.of(studentId))) {
+                if (avatarStorage.isSameLocation(referenced, location)) {
+                    return false;
+                }
+            }
+            avatarStorage.delete(location);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Cannot delete stored avatar {}", location, e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deleteStoredAvatar(String location) {
+        try {
+            avatarStorage.delete(location);
+        } catch (IOException e) {
+            logger.warn("Cannot delete stored avatar {}", location, e);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Student> queryStudents(StudentQuery query, Pageable pageable) {
+        logger.info("Was invoked method to query students by {}", query);
+        return studentRepository.findAll(StudentSpecifications.matching(query), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<StudentCard> getStudentCards(int page, int size) {
+        logger.info("Was invoked method to get student cards, page {} of size {}", page, size);
+        return studentRepository.findStudentCards(PageRequest.of(page, size, Sort.by("id")));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getStudentFields(String fields) {
+        List<String> selected = SparseFields.parse(fields, StudentRepositoryCustom.SPARSE_FIELDS.keySet());
+        return studentRepository.findFields(selected, null, null, null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getStudentFields(String fields, int page, int size) {
+        List<String> selected = SparseFields.parse(fields, StudentRepositoryCustom.SPARSE_FIELDS.keySet());
+        return studentRepository.findFields(selected, null, page, size);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getStudentFieldsById(Long id, String fields) {
+        List<String> selected = SparseFields.parse(fields, StudentRepositoryCustom.SPARSE_FIELDS.keySet());
+        List<Map<String, Object>> rows = studentRepository.findFields(selected, id, 0, 1);
+        return rows.isEmpty() ? null : rows.get(0);
     }
 
+    @Transactional(readOnly = true)
     public Student findStudentByName(String name) {
         return studentRepository.findStudentByNameContainsIgnoreCase(name);
     }
 
+    @Transactional(readOnly = true)
     public Collection<Student> findStudentByAge(int age) {
         logger.info("Was invoked method to filter students by age {}", age);
         return studentRepository.findStudentByAge(age);
     }
 
+    @Transactional(readOnly = true)
     public Collection<Student> findByNameContaining(String part) {
         return studentRepository.findByNameContainingIgnoreCase(part);
     }
 
+    @Transactional(readOnly = true)
     public Collection<Student> findStudentByAgeBetween(int min, int max) {
         return studentRepository.findByAgeBetween(min, max);
     }
 
     public Student getStudentById(Long id) {
         logger.debug("Looking for student with id {}", id);
-        Student student = studentRepository.findById(id).orElse(null);
+        Student cached = studentCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = studentCache.stamp();
+        Student student = studentRepository.findWithFacultyById(id).orElse(null);
         if (student == null) {
             logger.error("There is no student with id = {}", id);
             throw new StudentNotFoundException("Student not found");
         }
         logger.info("Was invoked method to get student by id {}", id);
-       return studentRepository.findById(id).orElse(null);
+        studentCache.putIfUnchanged(id, student, stamp);
+        return student;
+    }
+
+    /**
+     * Resolves many students at once: cached entries are served directly and the rest are loaded,
+     * with their faculty, in chunked {@code IN} queries.
+     */
+    public MultiGetResult<Student> getStudentsByIds(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, Student> students = new HashMap<>();
+        List<Long> toLoad = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            Student cached = studentCache.get(id);
+            if (cached != null) {
+                students.put(id, cached);
+            } else {
+                toLoad.add(id);
+            }
+        }
+
+        long stamp = studentCache.stamp();
+        for (int from = 0; from < toLoad.size(); from += MULTI_GET_CHUNK_SIZE) {
+            List<Long> chunk = toLoad.subList(from, Math.min(toLoad.size(), from + MULTI_GET_CHUNK_SIZE));
+            for (Student student : studentRepository.findWithFacultyByIdIn(chunk)) {
+                students.put(student.getId(), student);
+                studentCache.putIfUnchanged(student.getId(), student, stamp);
+            }
+        }
+
+        List<Student> found = new ArrayList<>(uniqueIds.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            Student student = students.get(id);
+            if (student != null) {
+                found.add(student);
+            } else {
+                missing.add(id);
+            }
+        }
+        logger.info("Was invoked method to get {} students by id, {} loaded from database", uniqueIds.size(), toLoad.size());
+        return new MultiGetResult<>(found, missing);
     }
 
     public void uploadAvatar(Long studentId, MultipartFile file) throws IOException {
-        Student student = findStudent(studentId);
+        uploadAvatar(studentId, file.getOriginalFilename(), file.getContentType(), file.getBytes());
+    }
 
-        Path filePath = Path.of(avatarsDir, studentId + "." + getExtention(file.getOriginalFilename()));
-        Files.createDirectories(filePath.getParent());
-        Files.deleteIfExists(filePath);
+    public void uploadAvatar(Long studentId, String filename, String contentType, byte[] content) throws IOException {
+        uploadAvatar(studentId, filename, contentType, new ByteArrayInputStream(content), content.length);
+    }
 
-        try (InputStream is = file.getInputStream();
-             OutputStream os = Files.newOutputStream(filePath, CREATE_NEW);
-             BufferedInputStream bis = new BufferedInputStream(is, 1024);
-             BufferedOutputStream bos = new BufferedOutputStream(os, 1024);
-        ) {
-            bis.transferTo(bos);
+    /**
+     * Streams {@code size} bytes of {@code content} into avatar storage. The avatar row keeps the image as its
+     * preview, so those bytes are captured while the content is written instead of being read up front.
+     */
+    public void uploadAvatar(Long studentId, String filename, String contentType, InputStream content, long size)
+            throws IOException {
+        AvatarUploadEvent event = new AvatarUploadEvent();
+        event.begin();
+        Lock lock = avatarLocks.forKey(studentId);
+        lock.lock();
+        try {
+            storeAvatar(studentId, filename, contentType, content, Math.toIntExact(size));
+        } finally {
+            lock.unlock();
+            event.end();
+            if (event.shouldCommit()) {
+                event.studentId = studentId;
+                event.bytes = size;
+                event.commit();
+            }
         }
+    }
 
+    private void storeAvatar(Long studentId, String filename, String contentType, InputStream content, int size)
+            throws IOException {
+        Student student = findStudent(studentId);
         Avatar avatar = avatarRepository.findByStudentId(studentId).orElseGet(Avatar::new);
+        String previousLocation = avatar.getFilePath();
+
+        PreviewCapture capture = new PreviewCapture(content, size);
+        String location = avatarStorage.store(studentId, getExtention(filename), capture, size);
+        if (!capture.isComplete()) {
+            deleteStoredAvatar(location);
+            throw new EOFException("Avatar content ended before its declared " + size + " bytes");
+        }
+        byte[] preview = capture.bytes();
+
+        try {
+            avatarRepository.save(applyUpload(avatar, student, location, contentType, preview));
+        } catch (DataIntegrityViolationException e) {
+            // another node stored the first avatar of this student meanwhile; take its row over
+            Avatar existing = avatar.getId() == null ? avatarRepository.findByStudentId(studentId).orElse(null) : null;
+            if (existing == null) {
+                deleteStoredAvatar(location);
+                throw e;
+            }
+            previousLocation = existing.getFilePath();
+            avatarRepository.save(applyUpload(existing, student, location, contentType, preview));
+        } catch (RuntimeException e) {
+            if (!location.equals(previousLocation)) {
+                deleteStoredAvatar(location);
+            }
+            throw e;
+        }
+        changeBus.publish(EntityChange.of(EntityChange.AVATAR, ChangeType.UPDATED, studentId));
+        if (previousLocation != null && !previousLocation.equals(location)) {
+            deleteStoredAvatar(previousLocation);
+        }
+    }
+
+    private static Avatar applyUpload(Avatar avatar, Student student, String location, String contentType,
+                                      byte[] content) {
         avatar.setStudent(student);
-        avatar.setFilePath(filePath.toString());
-        avatar.setFileSize(file.getSize());
-        avatar.setMediaType(file.getContentType());
-        avatar.setPreview(file.getBytes());
+        avatar.setFilePath(location);
+        avatar.setFileSize((long) content.length);
+        avatar.setMediaType(contentType);
+        avatar.setPreview(content);
+        return avatar;
+    }
 
-        avatarRepository.save(avatar);
+    /**
+     * Returns the avatar preview of a student from the preview cache, loading only the media type and
+     * preview bytes on a miss, or {@code null} if the student has no avatar.
+     */
+    public PreviewCache.Preview getAvatarPreview(Long studentId) {
+        PreviewCache.Preview preview = previewCache.get(studentId);
+        if (preview != null) {
+            return preview;
+        }
+        long stamp = previewCache.stamp();
+        return avatarRepository.findPreviewByStudentId(studentId)
+                .filter(data -> data.preview() != null)
+                .map(data -> previewCache.putIfUnchanged(studentId, data.mediaType(), data.preview(), stamp))
+                .orElse(null);
     }
 
+    /**
+     * Hands the previews of many students to {@code sink} in request order, skipping students without one.
+     * The ids are taken {@value #PREVIEW_CHUNK_SIZE} at a time: cached previews are served directly, the rest of
+     * the chunk is loaded with one {@code IN} query, and the chunk is handed out before the next one is loaded,
+     * so only one chunk of full-size previews is on the heap at a time.
+     */
+    public void streamAvatarPreviews(List<Long> studentIds, PreviewSink sink) throws IOException {
+        List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(studentIds));
+        int loaded = 0;
+        for (int from = 0; from < uniqueIds.size(); from += PREVIEW_CHUNK_SIZE) {
+            List<Long> chunk = uniqueIds.subList(from, Math.min(uniqueIds.size(), from + PREVIEW_CHUNK_SIZE));
+            Map<Long, PreviewCache.Preview> previews = new HashMap<>();
+            List<Long> toLoad = new ArrayList<>();
+            for (Long id : chunk) {
+                PreviewCache.Preview cached = previewCache.get(id);
+                if (cached != null) {
+                    previews.put(id, cached);
+                } else {
+                    toLoad.add(id);
+                }
+            }
+            if (!toLoad.isEmpty()) {
+                long stamp = previewCache.stamp();
+                for (StudentPreviewData data : avatarRepository.findPreviewsByStudentIdIn(toLoad)) {
+                    if (data.preview() != null) {
+                        previews.put(data.studentId(),
+                                previewCache.putIfUnchanged(data.studentId(), data.mediaType(), data.preview(), stamp));
+                    }
+                }
+                loaded += toLoad.size();
+            }
+            for (Long id : chunk) {
+                PreviewCache.Preview preview = previews.get(id);
+                if (preview != null) {
+                    sink.accept(id, preview);
+                }
+            }
+        }
+        logger.info("Was invoked method to stream {} avatar previews, {} loaded from database", uniqueIds.size(), loaded);
+    }
+
+    public ReadableByteChannel openAvatar(Avatar avatar) throws IOException {
+        return avatarStorage.open(avatar.getFilePath());
+    }
+
+    @Transactional(readOnly = true)
     public Avatar findStudentAvatar(Long id) {
         return avatarRepository.findByStudentId(id).orElseThrow();
     }
@@ -137,24 +574,86 @@ public class StudentService {
         return filename.substring(filename.lastIndexOf(".") + 1);
     }
 
+    @Transactional(readOnly = true)
     public long getTotalStudents() {
         return studentRepository.countAllStudents();
     }
 
+    @Transactional(readOnly = true)
     public long getStudentCountByFaculty(Long facultyId) {
         return studentRepository.countStudentsByFaculty(facultyId);
     }
 
+    @Transactional(readOnly = true)
     public Double getAverageStudentAge() {
         return studentRepository.findAverageAge();
     }
 
+    @Transactional(readOnly = true)
     public List<Student> getLatestFiveStudents() {
         return studentRepository.findTop5ByOrderByIdDescNative();
     }
 
+    @Transactional(readOnly = true)
     public Page<Avatar> getAvatarsByStudentId(Long studentId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         return avatarRepository.findByStudentId(studentId, pageable);
     }
+
+    @FunctionalInterface
+    public interface PreviewSink {
+        void accept(Long studentId, PreviewCache.Preview preview) throws IOException;
+    }
+
+    /**
+     * Copies the bytes of an upload into its preview while storage reads them.
+     */
+    private static final class PreviewCapture extends FilterInputStream {
+        private final byte[] bytes;
+        private int position;
+
+        PreviewCapture(InputStream content, int size) {
+            super(content);
+            this.bytes = new byte[size];
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                capture(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                capture(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            throw new IOException("Avatar content cannot be skipped");
+        }
+
+        private void capture(byte[] buffer, int offset, int length) throws IOException {
+            if (length > bytes.length - position) {
+                throw new IOException("Avatar content is longer than its declared " + bytes.length + " bytes");
+            }
+            System.arraycopy(buffer, offset, bytes, position, length);
+            position += length;
+        }
+
+        boolean isComplete() {
+            return position == bytes.length;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package ru.hogwarts.school.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records the time from JVM start to the first handled HTTP request, which is the figure that matters
+ * when comparing the default startup with the CDS/AOT one.
+ */
+@Component
+public class FirstRequestListener {
+    private static final Logger logger = LoggerFactory.getLogger(FirstRequestListener.class);
+
+    private final AtomicBoolean handled = new AtomicBoolean();
+    private final MeterRegistry meterRegistry;
+
+    public FirstRequestListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (!handled.compareAndSet(false, true)) {
+            return;
+        }
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        meterRegistry.timer("app.startup.first-request").record(uptime, TimeUnit.MILLISECONDS);
+        logger.info("First request {} served {} ms after JVM start", event.getRequestUrl(), uptime);
+    }
+}
@@ -0,0 +1,126 @@
+package ru.hogwarts.school.startup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.services.FacultyService;
+import ru.hogwarts.school.services.StudentService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs representative read paths before the application reports readiness, so that Hibernate query plans,
+ * pgjdbc server-side statements, Jackson serializers and JIT-compiled code are in place for the first users.
+ * <p>
+ * Spring Boot publishes {@code ReadinessState.ACCEPTING_TRAFFIC} only after all runners have completed,
+ * so the readiness probe stays down for the duration of the warm-up.
+ */
+@Component
+public class WarmUpRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpRunner.class);
+
+    private final StudentService studentService;
+    private final FacultyService facultyService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer warmUpTimer;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+    @Value("${warmup.iterations:50}")
+    private int iterations;
+
+    public WarmUpRunner(StudentService studentService,
+                        FacultyService facultyService,
+                        ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry) {
+        this.studentService = studentService;
+        this.facultyService = facultyService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.warmUpTimer = Timer.builder("app.warmup")
+                .description("Time spent warming up read paths before readiness")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            logger.info("Warm-up is disabled");
+            return;
+        }
+        long start = System.nanoTime();
+        int failures = 0;
+        for (int i = 0; i < iterations; i++) {
+            failures += warmUpOnce();
+        }
+        long elapsed = System.nanoTime() - start;
+        warmUpTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("Warm-up finished in {} ms ({} iterations, {} failed calls)",
+                TimeUnit.NANOSECONDS.toMillis(elapsed), iterations, failures);
+    }
+
+    private int warmUpOnce() {
+        int failed = 0;
+        List<Student> latest = studentService.getLatestFiveStudents();
+        failed += exercise(studentService::getLatestFiveStudents);
+        for (Student student : latest) {
+            failed += exercise(() -> studentService.getStudentById(student.getId()));
+            failed += exercise(() -> studentService.findStudentByAge(student.getAge()));
+            failed += exercise(() -> studentService.findStudentByAgeBetween(student.getAge() - 1, student.getAge() + 1));
+            if (student.getName() != null && !student.getName().isEmpty()) {
+                String part = student.getName().substring(0, 1);
+                failed += exercise(() -> studentService.findByNameContaining(part));
+                failed += exercise(() -> studentService.findStudentByName(student.getName()));
+            }
+        }
+        failed += exercise(studentService::getTotalStudents);
+        failed += exercise(studentService::getAverageStudentAge);
+
+        Collection<Faculty> faculties = facultyService.getAllFaculty();
+        failed += exercise(facultyService::getAllFaculty);
+        for (Faculty faculty : faculties) {
+            failed += exercise(() -> studentService.getStudentCountByFaculty(faculty.getId()));
+            if (faculty.getColour() != null) {
+                failed += exercise(() -> facultyService.findByColour(faculty.getColour()));
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Each call gets its own read-only transaction, so that lazy associations can be serialized
+     * the way they are under open-in-view, and a failing call cannot mark the others rollback-only.
+     */
+    private int exercise(Supplier<?> call) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try {
+                    objectMapper.writeValueAsBytes(call.get());
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            return 0;
+        } catch (Exception e) {
+            logger.debug("Warm-up call failed", e);
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.hogwarts.school.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Where avatar images live. A location returned by {@link #store} is kept in {@code Avatar.filePath} and is
+ * opaque to everything except the storage that produced it.
+ */
+public interface AvatarStorage {
+
+    /**
+     * Stores {@code size} bytes of {@code content} and returns the location to read them back from.
+     */
+    String store(Long studentId, String extension, InputStream content, long size) throws IOException;
+
+    /**
+     * Opens a stored avatar for reading.
+     *
+     * @throws java.nio.file.NoSuchFileException if nothing is stored at the location
+     */
+    ReadableByteChannel open(String location) throws IOException;
+
+    /**
+     * Removes a stored avatar; unknown locations are ignored.
+     */
+    void delete(String location) throws IOException;
+
+    /**
+     * Lists everything currently stored, for reconciliation with the avatar table; the stream must be closed.
+     * {@code storedAt} may be later than the actual write but never earlier, so anything younger than a grace
+     * period can be treated as an upload whose row is not committed yet.
+     */
+    Stream<StoredObject> list() throws IOException;
+
+    /**
+     * Tells whether two locations name the same stored avatar, e.g. file paths spelled relative and absolute.
+     */
+    default boolean isSameLocation(String first, String second) {
+        return Objects.equals(first, second);
+    }
+
+    /**
+     * @param studentId the student the object was stored for, or {@code null} if it was not stored by this storage
+     */
+    record StoredObject(String location, Long studentId, Instant storedAt) {
+    }
+}
@@ -0,0 +1,43 @@
+package ru.hogwarts.school.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads a buffer, typically a slice of a mapped segment, without copying it to the heap first.
+ */
+final class ByteBufferChannel implements ReadableByteChannel {
+
+    private final ByteBuffer buffer;
+    private boolean open = true;
+
+    ByteBufferChannel(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int length = Math.min(dst.remaining(), buffer.remaining());
+        dst.put(dst.position(), buffer, buffer.position(), length);
+        dst.position(dst.position() + length);
+        buffer.position(buffer.position() + length);
+        return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
@@ -0,0 +1,132 @@
+package ru.hogwarts.school.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * One file per avatar, named after the student, in a single directory. The location is the file path.
+ * <p>
+ * A new avatar is written to a temporary file in the same directory, forced to disk and renamed over the old
+ * one, so readers see either the old or the new file in full and a crash leaves at most a stray temp file.
+ */
+public class FileSystemAvatarStorage implements AvatarStorage {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path directory;
+
+    public FileSystemAvatarStorage(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String store(Long studentId, String extension, InputStream content, long size) throws IOException {
+        Path filePath = directory.resolve(studentId + "." + extension);
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, studentId + "-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, WRITE)) {
+                byte[] chunk = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(chunk)) >= 0) {
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile, filePath, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        forceDirectory();
+        return filePath.toString();
+    }
+
+    @Override
+    public ReadableByteChannel open(String location) throws IOException {
+        return FileChannel.open(Path.of(location));
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        Files.deleteIfExists(Path.of(location));
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Stream.empty();
+        }
+        return Files.list(directory)
+                .filter(Files::isRegularFile)
+                .map(path -> {
+                    try {
+                        return new StoredObject(path.toString(), studentIdOf(path),
+                                Files.getLastModifiedTime(path).toInstant());
+                    } catch (NoSuchFileException e) {
+                        // removed while listing
+                        return null;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public boolean isSameLocation(String first, String second) {
+        if (first == null || second == null) {
+            return Objects.equals(first, second);
+        }
+        return Path.of(first).toAbsolutePath().normalize().equals(Path.of(second).toAbsolutePath().normalize());
+    }
+
+    /**
+     * Reads the student id that both {@code {studentId}.{ext}} and the temp files {@code {studentId}-*.tmp}
+     * start with; other files were not written here.
+     */
+    private static Long studentIdOf(Path path) {
+        String name = path.getFileName().toString();
+        int end = 0;
+        while (end < name.length() && Character.isDigit(name.charAt(end))) {
+            end++;
+        }
+        if (end == 0 || end == name.length() || (name.charAt(end) != '.' && name.charAt(end) != '-')) {
+            return null;
+        }
+        try {
+            return Long.valueOf(name.substring(0, end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Makes the rename durable. Not every platform can open a directory as a channel, and there the rename is
+     * left to the file system.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // directories cannot be synced on this platform
+        }
+    }
+}
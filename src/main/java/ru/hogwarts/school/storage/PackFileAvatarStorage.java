@@ -0,0 +1,327 @@
+package ru.hogwarts.school.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Appends avatars to large memory-mapped segment files instead of keeping one file per avatar.
+ * <p>
+ * Every record is {@code magic, type, key length, data length, key, data}. The magic number is written last,
+ * so a record torn by a crash is ignored and overwritten on the next start. Deleting an avatar appends a
+ * tombstone; the in-memory index from key to segment offset is rebuilt by scanning the segments on start.
+ * Reads are served from a slice of the mapping. Sealed segments whose dead share reaches the compaction
+ * threshold have their live records copied to the active segment and are then removed.
+ */
+public class PackFileAvatarStorage implements AvatarStorage {
+
+    public static final String LOCATION_PREFIX = "pack:";
+
+    private static final Logger logger = LoggerFactory.getLogger(PackFileAvatarStorage.class);
+    private static final int MAGIC = 0x48415631;
+    private static final byte BLOB = 1;
+    private static final byte TOMBSTONE = 2;
+    private static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Short.BYTES + Integer.BYTES;
+    private static final int COPY_CHUNK_SIZE = 8192;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    // key of a deleted avatar -> segment that still holds its blob; the tombstone must survive until that
+    // segment is gone, otherwise the blob would reappear on the next start
+    private final Map<String, Integer> tombstones = new HashMap<>();
+    private Segment active;
+
+    public PackFileAvatarStorage(Path directory, int segmentSize, double compactionThreshold) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        load();
+    }
+
+    @Override
+    public String store(Long studentId, String extension, InputStream content, long size) throws IOException {
+        String key = studentId + "/" + UUID.randomUUID() + "." + extension;
+        long recordLength = recordLength(key.getBytes(StandardCharsets.UTF_8), size);
+        if (recordLength > segmentSize) {
+            throw new IOException("Avatar record of " + recordLength + " bytes does not fit a segment of "
+                    + segmentSize + " bytes");
+        }
+        writeLock.lock();
+        try {
+            Entry entry = append(BLOB, key, (int) size, (buffer, position) -> copy(content, buffer, position, (int) size));
+            index.put(key, entry);
+        } finally {
+            writeLock.unlock();
+        }
+        return LOCATION_PREFIX + key;
+    }
+
+    @Override
+    public ReadableByteChannel open(String location) throws IOException {
+        Entry entry = index.get(key(location));
+        if (entry == null) {
+            throw new NoSuchFileException(location);
+        }
+        return new ByteBufferChannel(entry.segment().buffer.slice(entry.dataOffset(), entry.dataLength()).asReadOnlyBuffer());
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        String key = key(location);
+        writeLock.lock();
+        try {
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return;
+            }
+            Entry tombstone = append(TOMBSTONE, key, 0, (buffer, position) -> {
+            });
+            index.remove(key);
+            entry.segment().deadBytes += entry.recordLength();
+            tombstone.segment().deadBytes += tombstone.recordLength();
+            tombstones.put(key, entry.segment().id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Compacts at most one sealed segment per run, the oldest one that is dead enough.
+     */
+    @Scheduled(fixedDelayString = "${avatars.pack.compaction-interval-ms:60000}")
+    public void compact() {
+        writeLock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.writePosition > 0
+                        && (double) segment.deadBytes / segment.writePosition >= compactionThreshold) {
+                    compact(segment);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot compact avatar segments in {}", directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compact(Segment segment) throws IOException {
+        int moved = 0;
+        int position = 0;
+        while (position < segment.writePosition) {
+            Record record = Record.read(segment.buffer, position);
+            if (record.type() == BLOB) {
+                Entry entry = index.get(record.key());
+                if (entry != null && entry.segment() == segment && entry.offset() == position) {
+                    ByteBuffer data = segment.buffer.slice(entry.dataOffset(), entry.dataLength());
+                    index.put(record.key(), append(BLOB, record.key(), entry.dataLength(),
+                            (buffer, target) -> buffer.put(target, data, 0, data.remaining())));
+                    moved++;
+                }
+            } else {
+                Integer blobSegment = tombstones.get(record.key());
+                if (blobSegment != null && blobSegment != segment.id && segments.containsKey(blobSegment)) {
+                    Entry tombstone = append(TOMBSTONE, record.key(), 0, (buffer, target) -> {
+                    });
+                    tombstone.segment().deadBytes += tombstone.recordLength();
+                }
+            }
+            position += record.length();
+        }
+        segments.remove(segment.id);
+        tombstones.values().removeIf(id -> id == segment.id);
+        Files.deleteIfExists(segment.path);
+        logger.info("Compacted avatar segment {}: {} live avatars moved", segment.path, moved);
+    }
+
+    private Entry append(byte type, String key, int dataLength, DataWriter writer) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (recordLength(keyBytes, dataLength) > segmentSize) {
+            throw new IOException("Record of " + key + " does not fit a segment of " + segmentSize + " bytes");
+        }
+        int recordLength = HEADER_SIZE + keyBytes.length + dataLength;
+        if (active.writePosition + recordLength > segmentSize) {
+            active = createSegment(active.id + 1);
+        }
+        Segment segment = active;
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = segment.writePosition;
+
+        buffer.putInt(offset, 0);
+        buffer.put(offset + Integer.BYTES, type);
+        buffer.putShort(offset + Integer.BYTES + Byte.BYTES, (short) keyBytes.length);
+        buffer.putInt(offset + Integer.BYTES + Byte.BYTES + Short.BYTES, dataLength);
+        buffer.put(offset + HEADER_SIZE, keyBytes);
+        writer.write(buffer, offset + HEADER_SIZE + keyBytes.length);
+        if (offset + recordLength + Integer.BYTES <= segmentSize) {
+            buffer.putInt(offset + recordLength, 0);
+        }
+        buffer.force(offset, recordLength);
+        buffer.putInt(offset, MAGIC);
+        buffer.force(offset, Integer.BYTES);
+
+        segment.writePosition = offset + recordLength;
+        return new Entry(segment, offset, recordLength, dataLength, System.currentTimeMillis());
+    }
+
+    private static long recordLength(byte[] keyBytes, long dataLength) {
+        return (long) HEADER_SIZE + keyBytes.length + dataLength;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().matches("segment-\\d+\\.pack")).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Segment segment = map(file, Integer.parseInt(name.substring("segment-".length(), name.length() - ".pack".length())));
+            segments.put(segment.id, segment);
+            scan(segment);
+        }
+        active = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+        logger.info("Loaded {} avatars from {} segments in {}", index.size(), segments.size(), directory);
+    }
+
+    private void scan(Segment segment) {
+        int position = 0;
+        while (position + HEADER_SIZE <= segmentSize && segment.buffer.getInt(position) == MAGIC) {
+            Record record = Record.read(segment.buffer, position);
+            if (record.type() == BLOB) {
+                Entry previous = index.put(record.key(), new Entry(segment, position, record.length(), record.dataLength(),
+                        System.currentTimeMillis()));
+                if (previous != null) {
+                    previous.segment().deadBytes += previous.recordLength();
+                }
+            } else {
+                Entry removed = index.remove(record.key());
+                if (removed != null) {
+                    removed.segment().deadBytes += removed.recordLength();
+                    tombstones.put(record.key(), removed.segment().id);
+                }
+                segment.deadBytes += record.length();
+            }
+            position += record.length();
+        }
+        segment.writePosition = position;
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = map(directory.resolve(String.format("segment-%08d.pack", id)), id);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Segment map(Path path, int id) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ, WRITE, CREATE)) {
+            return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private static void copy(InputStream content, MappedByteBuffer buffer, int position, int length) throws IOException {
+        byte[] chunk = new byte[COPY_CHUNK_SIZE];
+        int remaining = length;
+        while (remaining > 0) {
+            int read = content.read(chunk, 0, Math.min(chunk.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Avatar content ended " + remaining + " bytes early");
+            }
+            buffer.put(position, chunk, 0, read);
+            position += read;
+            remaining -= read;
+        }
+    }
+
+    @Override
+    public Stream<StoredObject> list() {
+        List<StoredObject> objects = new ArrayList<>(index.size());
+        index.forEach((key, entry) ->
+                objects.add(new StoredObject(LOCATION_PREFIX + key, studentIdOf(key),
+                        Instant.ofEpochMilli(entry.indexedAtMillis()))));
+        return objects.stream();
+    }
+
+    // keys are {studentId}/{uuid}.{ext}
+    private static Long studentIdOf(String key) {
+        int slash = key.indexOf('/');
+        try {
+            return slash < 0 ? null : Long.valueOf(key.substring(0, slash));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String key(String location) {
+        return location != null && location.startsWith(LOCATION_PREFIX) ? location.substring(LOCATION_PREFIX.length()) : "";
+    }
+
+    @FunctionalInterface
+    private interface DataWriter {
+        void write(MappedByteBuffer buffer, int position) throws IOException;
+    }
+
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        long deadBytes;
+
+        Segment(int id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    // indexedAtMillis is when this node wrote or loaded the record, the records themselves carry no timestamp
+    private record Entry(Segment segment, int offset, int recordLength, int dataLength, long indexedAtMillis) {
+        int dataOffset() {
+            return offset + recordLength - dataLength;
+        }
+    }
+
+    private record Record(byte type, String key, int length, int dataLength) {
+        static Record read(ByteBuffer buffer, int position) {
+            byte type = buffer.get(position + Integer.BYTES);
+            int keyLength = buffer.getShort(position + Integer.BYTES + Byte.BYTES);
+            int dataLength = buffer.getInt(position + Integer.BYTES + Byte.BYTES + Short.BYTES);
+            byte[] key = new byte[keyLength];
+            buffer.get(position + HEADER_SIZE, key);
+            return new Record(type, new String(key, StandardCharsets.UTF_8), HEADER_SIZE + keyLength + dataLength, dataLength);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.hogwarts.school.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.util.stream.Stream;
+
+/**
+ * Stores new avatars in pack files while avatars written before the switch stay readable where they are.
+ * Locations are routed by their {@link PackFileAvatarStorage#LOCATION_PREFIX}; anything else is a file path of
+ * the legacy storage. A legacy avatar moves to the packs when it is uploaded again.
+ */
+public class PrefixRoutingAvatarStorage implements AvatarStorage {
+
+    private final PackFileAvatarStorage packs;
+    private final AvatarStorage legacy;
+
+    public PrefixRoutingAvatarStorage(PackFileAvatarStorage packs, AvatarStorage legacy) {
+        this.packs = packs;
+        this.legacy = legacy;
+    }
+
+    @Override
+    public String store(Long studentId, String extension, InputStream content, long size) throws IOException {
+        return packs.store(studentId, extension, content, size);
+    }
+
+    @Override
+    public ReadableByteChannel open(String location) throws IOException {
+        return route(location).open(location);
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        route(location).delete(location);
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        return Stream.concat(packs.list(), legacy.list());
+    }
+
+    @Override
+    public boolean isSameLocation(String first, String second) {
+        AvatarStorage storage = route(first);
+        return storage == route(second) && storage.isSameLocation(first, second);
+    }
+
+    private AvatarStorage route(String location) {
+        return location != null && location.startsWith(PackFileAvatarStorage.LOCATION_PREFIX) ? packs : legacy;
+    }
+}
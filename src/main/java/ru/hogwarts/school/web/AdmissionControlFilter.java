@@ -0,0 +1,124 @@
+package ru.hogwarts.school.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import ru.hogwarts.school.concurrency.AdaptiveLimiter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits requests per endpoint class, each class with its own {@link AdaptiveLimiter}, so that a burst of
+ * expensive calls backs up in its own queue and is shed with {@code 503} instead of occupying the worker and
+ * connection pools that cheap lookups need. Requests of no class pass through, as do excluded endpoints:
+ * event streams, async downloads and anything else whose duration is not a measure of load.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final List<Endpoint> excluded;
+    private final List<EndpointClass> classes;
+    private final long retryAfterSeconds;
+
+    public AdmissionControlFilter(List<String> excluded, List<EndpointClass> classes, long retryAfterSeconds) {
+        this.excluded = excluded.stream().map(Endpoint::parse).toList();
+        this.classes = classes;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+            return true;
+        }
+        String method = request.getMethod();
+        PathContainer path = pathOf(request);
+        return excluded.stream().anyMatch(endpoint -> endpoint.matches(method, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request);
+        if (endpointClass == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveLimiter limiter = endpointClass.limiter();
+        boolean admitted;
+        try {
+            admitted = limiter.tryAcquire(endpointClass.queueTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many " + endpointClass.name() + " requests");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            chain.doFilter(request, response);
+            succeeded = response.getStatus() < HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        } finally {
+            if (request.isAsyncStarted()) {
+                limiter.releaseWithoutSample();
+            } else {
+                limiter.release(System.nanoTime() - start, succeeded);
+            }
+        }
+    }
+
+    private EndpointClass classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        PathContainer path = pathOf(request);
+        for (EndpointClass endpointClass : classes) {
+            if (endpointClass.endpoints().stream().anyMatch(endpoint -> endpoint.matches(method, path))) {
+                return endpointClass;
+            }
+        }
+        return null;
+    }
+
+    private static PathContainer pathOf(HttpServletRequest request) {
+        return PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    /**
+     * Requests are matched against the endpoints in order, and the first class with a match takes them.
+     */
+    public record EndpointClass(String name, List<Endpoint> endpoints, AdaptiveLimiter limiter,
+                                long queueTimeoutMillis) {
+    }
+
+    /**
+     * An endpoint written as {@code "GET /student/*"}; without a method every method matches.
+     */
+    public record Endpoint(String method, PathPattern pattern) {
+
+        public static Endpoint parse(String spec) {
+            String trimmed = spec.trim();
+            int space = trimmed.indexOf(' ');
+            String method = space < 0 ? null : trimmed.substring(0, space);
+            String path = space < 0 ? trimmed : trimmed.substring(space + 1).trim();
+            return new Endpoint(method, PathPatternParser.defaultInstance.parse(path));
+        }
+
+        boolean matches(String requestMethod, PathContainer path) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && pattern.matches(path);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.hogwarts.school.web;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * Copies a channel to an async response with non-blocking servlet output. A chunk is read and written only
+ * while the container reports the output ready, so a slow client holds no thread between writes; the
+ * container calls back when its socket buffer drains.
+ */
+public final class ChannelWriteListener implements WriteListener, AsyncListener {
+    private static final Logger logger = LoggerFactory.getLogger(ChannelWriteListener.class);
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final ReadableByteChannel channel;
+    private final byte[] chunk;
+    private final ByteBuffer buffer;
+    private final LongConsumer onFinish;
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private long transferred;
+
+    private ChannelWriteListener(AsyncContext asyncContext, ServletOutputStream out, ReadableByteChannel channel,
+                                 int chunkSize, LongConsumer onFinish) {
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.channel = channel;
+        this.chunk = new byte[chunkSize];
+        this.buffer = ByteBuffer.wrap(chunk);
+        this.onFinish = onFinish;
+    }
+
+    /**
+     * Starts streaming {@code channel} to the response of {@code asyncContext}. The channel is closed and
+     * {@code onFinish} receives the number of bytes written once the copy completes, fails or times out.
+     */
+    public static void stream(AsyncContext asyncContext, ReadableByteChannel channel, int chunkSize,
+                              LongConsumer onFinish) throws IOException {
+        ServletOutputStream out = asyncContext.getResponse().getOutputStream();
+        ChannelWriteListener listener = new ChannelWriteListener(asyncContext, out, channel, chunkSize, onFinish);
+        asyncContext.addListener(listener);
+        out.setWriteListener(listener);
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        while (out.isReady()) {
+            buffer.clear();
+            int read = channel.read(buffer);
+            if (read < 0) {
+                finish(true);
+                return;
+            }
+            out.write(chunk, 0, read);
+            transferred += read;
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        logger.debug("Streaming to the client failed after {} bytes", transferred, t);
+        finish(true);
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        finish(false);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        logger.debug("Streaming to the client timed out after {} bytes", transferred);
+        finish(true);
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        finish(true);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void finish(boolean complete) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Cannot close the streamed channel", e);
+        }
+        onFinish.accept(transferred);
+        if (complete) {
+            asyncContext.complete();
+        }
+    }
+}
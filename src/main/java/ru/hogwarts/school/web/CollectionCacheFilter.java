@@ -0,0 +1,173 @@
+package ru.hogwarts.school.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.hogwarts.school.datasource.ReadYourWrites;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Conditional GET and compression for collection endpoints, keyed by the {@link TableVersion}.
+ * <p>
+ * The version is read before the handler runs, so a response can only be newer than its tag, never older.
+ * Matching {@code If-None-Match} requests get {@code 304} without reaching the controller. Otherwise the body
+ * is captured together with its gzip encoding when it is large enough, and later requests for the same URL
+ * and {@code Accept} at the same version are answered from memory. Captured bodies are kept in LRU order
+ * within a budget on their raw and gzipped bytes together; a body taking more than an eighth of the budget is
+ * sent without being kept.
+ * <p>
+ * Requests pinned to the primary by read-your-writes pass through untouched. The version and the cached bodies
+ * are those of the replicas; a pinned request reading them would either see a body older than its own write or,
+ * by loading the primary's version, let replica responses be stored under a version they do not reflect.
+ */
+public class CollectionCacheFilter extends OncePerRequestFilter {
+
+    private final TableVersion tableVersion;
+    private final int compressionThreshold;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Map<String, CachedBody> bodies = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    public CollectionCacheFilter(TableVersion tableVersion, int compressionThreshold, long maxBytes) {
+        this.tableVersion = tableVersion;
+        this.compressionThreshold = compressionThreshold;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxBytes / 8;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || ReadYourWrites.isPinnedToPrimary();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String key = cacheKey(request, accept);
+        long version = tableVersion.current();
+        String etag = "W/\"" + version + "-" + Integer.toHexString(key.hashCode()) + "\"";
+        boolean gzipAccepted = acceptsGzip(request);
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            setValidators(response, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        CachedBody cachedBody = cached(key, version);
+        if (cachedBody != null) {
+            write(response, etag, cachedBody, gzipAccepted);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || request.isAsyncStarted()) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+
+        byte[] body = wrapper.getContentAsByteArray();
+        byte[] gzipped = body.length >= compressionThreshold ? gzip(body) : null;
+        CachedBody captured = new CachedBody(version, wrapper.getContentType(), body, gzipped);
+        if (captured.size() <= maxEntryBytes) {
+            keep(key, captured);
+        }
+        write(response, etag, captured, gzipAccepted);
+    }
+
+    private void keep(String key, CachedBody body) {
+        synchronized (bodies) {
+            CachedBody previous = bodies.put(key, body);
+            if (previous != null) {
+                usedBytes -= previous.size();
+            }
+            usedBytes += body.size();
+            Iterator<CachedBody> eldest = bodies.values().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                usedBytes -= eldest.next().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    private CachedBody cached(String key, long version) {
+        synchronized (bodies) {
+            CachedBody body = bodies.get(key);
+            return body != null && body.version == version ? body : null;
+        }
+    }
+
+    private static void write(HttpServletResponse response, String etag, CachedBody body, boolean gzipAccepted)
+            throws IOException {
+        setValidators(response, etag);
+        byte[] payload = body.raw;
+        if (gzipAccepted && body.gzipped != null) {
+            payload = body.gzipped;
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        if (body.contentType != null) {
+            response.setContentType(body.contentType);
+        }
+        response.setContentLength(payload.length);
+        response.getOutputStream().write(payload);
+        response.flushBuffer();
+    }
+
+    private static void setValidators(HttpServletResponse response, String etag) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private static String cacheKey(HttpServletRequest request, String accept) {
+        String query = request.getQueryString();
+        return request.getRequestURI() + (query == null ? "" : "?" + query) + "|" + (accept == null ? "" : accept);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private record CachedBody(long version, String contentType, byte[] raw, byte[] gzipped) {
+
+        long size() {
+            return raw.length + (gzipped == null ? 0 : gzipped.length);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.hogwarts.school.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.cache.ChangeBus;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modification version of the student and faculty tables: the sum of {@code collection_change}, where statement
+ * triggers insert a row in the transaction of every insert, update, delete and truncate. The rows of a
+ * transaction become visible when it commits, so the value grows with every commit and never goes back,
+ * whatever order writers started in; writers only insert and never wait for each other. Compaction folds the
+ * rows into one in a single statement, which leaves the sum unchanged.
+ * <p>
+ * The value is cached until a change is published on the {@link ChangeBus}, with a short TTL as a backstop for
+ * writes that bypass the bus. It is read in a read-only transaction so that, with replica routing, it comes
+ * from the same database as the response it tags.
+ */
+@Component
+public class TableVersion {
+
+    private static final String VERSION_SQL = "SELECT COALESCE(SUM(changes), 0) FROM collection_change";
+    private static final String COMPACT_SQL = "WITH removed AS (DELETE FROM collection_change RETURNING changes) " +
+            "INSERT INTO collection_change (changes) SELECT SUM(changes) FROM removed HAVING COUNT(*) > 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long ttlNanos;
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Cached cached;
+
+    public TableVersion(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        ChangeBus changeBus,
+                        @Value("${http.collection-cache.version-ttl-ms:1000}") long ttlMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.ttlNanos = ttlMillis * 1_000_000;
+        changeBus.subscribe(change -> invalidate());
+        changeBus.onReconnect(this::invalidate);
+    }
+
+    public long current() {
+        Cached snapshot = cached;
+        long now = System.nanoTime();
+        if (snapshot != null && snapshot.generation == generation.get() && now - snapshot.loadedAt < ttlNanos) {
+            return snapshot.version;
+        }
+        long loadGeneration = generation.get();
+        Long version = readOnlyTransaction.execute(status -> jdbcTemplate.queryForObject(VERSION_SQL, Long.class));
+        long value = version == null ? 0 : version;
+        if (generation.get() == loadGeneration) {
+            cached = new Cached(value, loadGeneration, now);
+        }
+        return value;
+    }
+
+    @Scheduled(fixedDelayString = "${http.collection-cache.version-compaction-interval-ms:60000}")
+    public void compact() {
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM collection_change", Long.class);
+        if (rows != null && rows > 1) {
+            jdbcTemplate.update(COMPACT_SQL);
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private record Cached(long version, long generation, long loadedAt) {
+    }
+}
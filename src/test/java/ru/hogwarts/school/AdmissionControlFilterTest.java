@@ -0,0 +1,116 @@
+package ru.hogwarts.school;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.hogwarts.school.concurrency.AdaptiveLimiter;
+import ru.hogwarts.school.web.AdmissionControlFilter;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControlFilterTest {
+
+    private final AdaptiveLimiter expensiveLimiter = new AdaptiveLimiter(1, 1, 4, 0, 500, 0.5);
+    private final AdaptiveLimiter cheapLimiter = new AdaptiveLimiter(8, 1, 16, 8, 50, 0.5);
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(
+            List.of("GET /student/*/avatar"),
+            List.of(new AdmissionControlFilter.EndpointClass("expensive",
+                            List.of(AdmissionControlFilter.Endpoint.parse("GET /student")), expensiveLimiter, 10),
+                    new AdmissionControlFilter.EndpointClass("cheap",
+                            List.of(AdmissionControlFilter.Endpoint.parse("GET /student/*")), cheapLimiter, 10)),
+            1);
+
+    @Test
+    void shouldShedExpensiveRequestsWhileCheapOnesPass() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        HttpServlet slowListing = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                entered.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<MockHttpServletResponse> first = executor.submit(() -> perform(get("/student"), slowListing));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            MockHttpServletResponse shed = perform(get("/student"), new HttpServlet() {
+            });
+            assertEquals(503, shed.getStatus());
+            assertEquals("1", shed.getHeader(HttpHeaders.RETRY_AFTER));
+
+            assertEquals(200, perform(get("/student/1"), new OkServlet()).getStatus());
+            assertEquals(200, perform(get("/student/1/avatar"), new OkServlet()).getStatus());
+
+            finish.countDown();
+            assertEquals(200, first.get(5, TimeUnit.SECONDS).getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, expensiveLimiter.getRejected());
+        assertEquals(0, expensiveLimiter.getInFlight());
+    }
+
+    @Test
+    void shouldRaiseLimitOnFastCallsAndCutItOnSlowOnes() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10, 0, 100, 0.5);
+        for (int round = 0; round < 20; round++) {
+            int permits = limiter.getLimit();
+            for (int i = 0; i < permits; i++) {
+                assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+            }
+            for (int i = 0; i < permits; i++) {
+                limiter.release(TimeUnit.MILLISECONDS.toNanos(1), true);
+            }
+        }
+        int raised = limiter.getLimit();
+        assertTrue(raised > 2, "limit should grow, was " + raised);
+
+        assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        limiter.release(TimeUnit.SECONDS.toNanos(1), true);
+        assertEquals(raised / 2, limiter.getLimit());
+
+        for (int i = 0; i < limiter.getLimit(); i++) {
+            assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        }
+        assertFalse(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, HttpServlet servlet) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    private static final class OkServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+            resp.setStatus(200);
+        }
+    }
+}
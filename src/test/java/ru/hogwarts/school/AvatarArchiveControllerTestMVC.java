@@ -0,0 +1,75 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.hogwarts.school.controllers.AvatarArchiveController;
+import ru.hogwarts.school.dto.ArchiveEntryResult;
+import ru.hogwarts.school.dto.StoredAvatar;
+import ru.hogwarts.school.exceptions.FacultyNotFoundException;
+import ru.hogwarts.school.services.AvatarArchiveService;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AvatarArchiveController.class)
+public class AvatarArchiveControllerTestMVC {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private AvatarArchiveService avatarArchiveService;
+
+    @Test
+    void shouldStreamFacultyArchive() throws Exception {
+        List<StoredAvatar> avatars = List.of(new StoredAvatar(1L, "data/avatars/1.jpg", "image/jpeg"));
+        when(avatarArchiveService.getFacultyAvatars(1L)).thenReturn(avatars);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("zip".getBytes());
+            return null;
+        }).when(avatarArchiveService).writeArchive(eq(avatars), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/faculty/1/avatars.zip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"faculty-1-avatars.zip\""))
+                .andExpect(content().bytes("zip".getBytes()));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownFacultyArchive() throws Exception {
+        when(avatarArchiveService.getFacultyAvatars(999L))
+                .thenThrow(new FacultyNotFoundException("Faculty 999 not found"));
+
+        mockMvc.perform(get("/faculty/999/avatars.zip"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReportEveryImportedEntry() throws Exception {
+        when(avatarArchiveService.importArchive(eq(1L), any(InputStream.class))).thenReturn(List.of(
+                ArchiveEntryResult.imported("1.jpg", 1L),
+                ArchiveEntryResult.skipped("readme.txt", null, "No student of this faculty matches the entry name")));
+
+        mockMvc.perform(post("/faculty/1/avatars.zip")
+                        .contentType("application/zip")
+                        .content(new byte[]{80, 75, 5, 6}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("IMPORTED"))
+                .andExpect(jsonPath("$[1].status").value("SKIPPED"));
+    }
+}
@@ -0,0 +1,94 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.hogwarts.school.dto.ArchiveEntryResult;
+import ru.hogwarts.school.dto.StoredAvatar;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.services.AvatarArchiveService;
+import ru.hogwarts.school.services.StudentService;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AvatarArchiveServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final StudentService studentService = mock(StudentService.class);
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final FacultyRepository facultyRepository = mock(FacultyRepository.class);
+
+    @Test
+    void shouldExportStoredAvatarsAndImportThemBack() throws Exception {
+        FileSystemAvatarStorage storage = new FileSystemAvatarStorage(directory);
+        String harry = storage.store(1L, "png", new ByteArrayInputStream("harry".getBytes()), 5);
+        String ron = storage.store(2L, "jpg", new ByteArrayInputStream("ron".getBytes()), 3);
+        AvatarArchiveService service = service(storage);
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        service.writeArchive(List.of(
+                new StoredAvatar(1L, harry, "image/png"),
+                new StoredAvatar(2L, ron, "image/jpeg"),
+                new StoredAvatar(3L, directory.resolve("3.png").toString(), "image/png")), archive);
+
+        when(facultyRepository.existsById(1L)).thenReturn(true);
+        when(studentRepository.findIdsByFacultyId(1L)).thenReturn(List.of(1L, 2L, 3L));
+        List<ArchiveEntryResult> report = service.importArchive(1L, new ByteArrayInputStream(archive.toByteArray()));
+
+        assertEquals(List.of(ArchiveEntryResult.imported("1.png", 1L), ArchiveEntryResult.imported("2.jpg", 2L)),
+                report);
+        verify(studentService).uploadAvatar(eq(1L), eq("1.png"), eq("image/png"), aryEq("harry".getBytes()));
+        verify(studentService).uploadAvatar(eq(2L), eq("2.jpg"), eq("image/jpeg"), aryEq("ron".getBytes()));
+    }
+
+    @Test
+    void shouldReportSkippedAndFailedEntries() throws Exception {
+        doThrow(new IOException("disk full"))
+                .when(studentService).uploadAvatar(eq(2L), anyString(), anyString(), any(byte[].class));
+        when(facultyRepository.existsById(1L)).thenReturn(true);
+        when(studentRepository.findIdsByFacultyId(1L)).thenReturn(List.of(1L, 2L));
+        AvatarArchiveService service = service(new FileSystemAvatarStorage(directory));
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            entry(zip, "notes.txt", new byte[1]);
+            entry(zip, "9.png", new byte[1]);
+            entry(zip, "1.png", new byte[StudentService.MAX_AVATAR_SIZE]);
+            entry(zip, "2.png", new byte[1]);
+        }
+        List<ArchiveEntryResult> report = service.importArchive(1L, new ByteArrayInputStream(archive.toByteArray()));
+
+        assertEquals(List.of(ArchiveEntryResult.Status.SKIPPED, ArchiveEntryResult.Status.SKIPPED,
+                        ArchiveEntryResult.Status.SKIPPED, ArchiveEntryResult.Status.FAILED),
+                report.stream().map(ArchiveEntryResult::status).toList());
+        assertEquals("The avatar is too large", report.get(2).message());
+        assertEquals("disk full", report.get(3).message());
+        verify(studentService, never()).uploadAvatar(eq(1L), anyString(), anyString(), any(byte[].class));
+    }
+
+    private AvatarArchiveService service(FileSystemAvatarStorage storage) {
+        return new AvatarArchiveService(studentService, mock(AvatarRepository.class), studentRepository,
+                facultyRepository, storage, 2, 2);
+    }
+
+    private static void entry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,63 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.controllers.AvatarIngestionController;
+import ru.hogwarts.school.dto.AvatarJob;
+import ru.hogwarts.school.exceptions.IngestionQueueFullException;
+import ru.hogwarts.school.services.AvatarIngestionService;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AvatarIngestionController.class)
+public class AvatarIngestionControllerTestMVC {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private AvatarIngestionService avatarIngestionService;
+
+    private final MockMultipartFile file = new MockMultipartFile(
+            "avatar", "test.jpg", MediaType.IMAGE_JPEG_VALUE, "fake-image".getBytes());
+
+    @Test
+    void shouldAcceptAvatarAndPointToJobStatus() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        when(avatarIngestionService.submit(eq(1L), any(MultipartFile.class))).thenReturn(
+                new AvatarJob(jobId, 1L, AvatarJob.Status.QUEUED, null, Instant.now(), null));
+
+        mockMvc.perform(multipart("/student/1/avatar/async").file(file))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/student/avatar/jobs/" + jobId))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void shouldAskToRetryLaterWhenQueueIsFull() throws Exception {
+        when(avatarIngestionService.submit(eq(1L), any(MultipartFile.class)))
+                .thenThrow(new IngestionQueueFullException("Avatar ingestion queue is full, retry later", 5));
+
+        mockMvc.perform(multipart("/student/1/avatar/async").file(file))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownJob() throws Exception {
+        mockMvc.perform(get("/student/avatar/jobs/" + UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+}
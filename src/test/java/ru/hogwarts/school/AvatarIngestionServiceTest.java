@@ -0,0 +1,134 @@
+package ru.hogwarts.school;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import ru.hogwarts.school.dto.AvatarJob;
+import ru.hogwarts.school.exceptions.IngestionQueueFullException;
+import ru.hogwarts.school.services.AvatarIngestionService;
+import ru.hogwarts.school.services.StudentService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AvatarIngestionServiceTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private final StudentService studentService = mock(StudentService.class);
+
+    @Test
+    void shouldRejectWhenQueueIsFullAndKeepNothingSpooled() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(studentService).uploadAvatar(anyLong(), any(), any(), any(InputStream.class), anyLong());
+        AvatarIngestionService service = service(1, 1);
+
+        AvatarJob running = service.submit(1L, avatar("harry"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        AvatarJob queued = service.submit(2L, avatar("ron"));
+
+        assertThrows(IngestionQueueFullException.class, () -> service.submit(3L, avatar("hermione")));
+        // only the running and the queued upload are spooled
+        assertEquals(2, spooledFiles());
+
+        release.countDown();
+        awaitFinished(service, running.id());
+        awaitFinished(service, queued.id());
+        assertEquals(AvatarJob.Status.DONE, service.getJob(queued.id()).status());
+        assertEquals(0, spooledFiles());
+    }
+
+    @Test
+    void shouldStreamSpooledUploadAndDeleteItAfterFailure() throws Exception {
+        doAnswer(invocation -> {
+            InputStream content = invocation.getArgument(3);
+            assertArrayEquals("harry".getBytes(), content.readAllBytes());
+            assertEquals(5L, (long) invocation.getArgument(4));
+            throw new IOException("disk full");
+        }).when(studentService).uploadAvatar(anyLong(), any(), any(), any(InputStream.class), anyLong());
+        AvatarIngestionService service = service(1, 10);
+
+        AvatarJob job = service.submit(1L, avatar("harry"));
+        awaitFinished(service, job.id());
+
+        assertEquals(AvatarJob.Status.FAILED, service.getJob(job.id()).status());
+        assertEquals("disk full", service.getJob(job.id()).error());
+        assertEquals(0, spooledFiles());
+    }
+
+    @Test
+    void shouldFailQueuedUploadsAndDeleteTheirSpoolOnShutdown() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(studentService).uploadAvatar(anyLong(), any(), any(), any(InputStream.class), anyLong());
+        AvatarIngestionService service = service(1, 1);
+        service.submit(1L, avatar("harry"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        AvatarJob queued = service.submit(2L, avatar("ron"));
+
+        service.shutdown();
+
+        assertEquals(AvatarJob.Status.FAILED, service.getJob(queued.id()).status());
+        Thread.sleep(50);
+        assertEquals(0, spooledFiles());
+        verify(studentService, never()).uploadAvatar(eq(2L), any(), any(), any(InputStream.class), anyLong());
+    }
+
+    @Test
+    void shouldDiscardUploadsSpooledByAPreviousRun() throws Exception {
+        Files.writeString(spoolDir.resolve("avatar-1-123.upload"), "harry");
+        Files.writeString(spoolDir.resolve("keep.txt"), "not ours");
+
+        service(1, 1);
+
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            assertEquals(List.of(spoolDir.resolve("keep.txt")), files.toList());
+        }
+    }
+
+    private AvatarIngestionService service(int workers, int queueCapacity) {
+        return new AvatarIngestionService(studentService, new SimpleMeterRegistry(), spoolDir.toString(),
+                workers, queueCapacity, 5, 60, 1);
+    }
+
+    private static MockMultipartFile avatar(String content) {
+        return new MockMultipartFile("avatar", "avatar.png", "image/png", content.getBytes());
+    }
+
+    private static void awaitFinished(AvatarIngestionService service, UUID jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getJob(jobId).finishedAt() == null) {
+            assertTrue(System.nanoTime() < deadline, "job " + jobId + " did not finish");
+            Thread.sleep(10);
+        }
+        // the spooled file is deleted right after the final status is recorded
+        Thread.sleep(50);
+    }
+
+    private long spooledFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.cache.ChangeBus;
+import ru.hogwarts.school.cache.ChangeType;
+import ru.hogwarts.school.cache.EntityChange;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ChangeBusTest {
+
+    private static final String CHANNEL = "test_changes";
+    private static final PGNotification[] CONNECTION_LOST = new PGNotification[0];
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BlockingQueue<PGNotification[]> notifications = new LinkedBlockingQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final BlockingQueue<EntityChange> received = new LinkedBlockingQueue<>();
+
+    private final ChangeBus changeBus = new ChangeBus(jdbcTemplate, new DataSourceProperties()) {
+        @Override
+        protected Connection openListenerConnection() throws SQLException {
+            connections.incrementAndGet();
+            PGConnection pgConnection = mock(PGConnection.class);
+            when(pgConnection.getNotifications(anyInt())).thenAnswer(invocation -> {
+                PGNotification[] next = notifications.poll(50, TimeUnit.MILLISECONDS);
+                if (next == CONNECTION_LOST) {
+                    throw new SQLException("connection lost");
+                }
+                return next;
+            });
+            Connection connection = mock(Connection.class);
+            when(connection.createStatement()).thenReturn(mock(Statement.class));
+            when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+            return connection;
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(changeBus, "enabled", true);
+        ReflectionTestUtils.setField(changeBus, "channel", CHANNEL);
+        changeBus.subscribe(received::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        changeBus.stop();
+    }
+
+    @Test
+    void shouldDispatchNotificationsOfOtherNodesAndSkipItsOwn() throws Exception {
+        EntityChange local = EntityChange.of(EntityChange.STUDENT, ChangeType.UPDATED, 7L);
+        changeBus.publish(local);
+        assertEquals(local, received.poll());
+        ArgumentCaptor<Object> ownPayload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).queryForList(eq("SELECT pg_notify(?, ?)"), eq(CHANNEL), ownPayload.capture());
+
+        changeBus.start();
+        notifications.add(new PGNotification[]{
+                notification((String) ownPayload.getValue()),
+                notification("other-node|faculty|DELETED|1,2")});
+
+        assertEquals(new EntityChange(EntityChange.FACULTY, ChangeType.DELETED, List.of(1L, 2L)),
+                received.poll(5, TimeUnit.SECONDS));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shouldResyncAfterReconnecting() throws Exception {
+        CountDownLatch resyncs = new CountDownLatch(2);
+        changeBus.onReconnect(resyncs::countDown);
+
+        changeBus.start();
+        notifications.add(CONNECTION_LOST);
+
+        assertTrue(resyncs.await(5, TimeUnit.SECONDS));
+        assertEquals(2, connections.get());
+    }
+
+    @Test
+    void shouldNotifyBeforeCommitAndDispatchAfterCommit() {
+        EntityChange change = EntityChange.of(EntityChange.STUDENT, ChangeType.CREATED, 3L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            changeBus.publish(change);
+            verifyNoInteractions(jdbcTemplate);
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+            verify(jdbcTemplate).queryForList(eq("SELECT pg_notify(?, ?)"), eq(CHANNEL), anyString());
+            assertTrue(received.isEmpty());
+
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            assertEquals(change, received.poll());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static PGNotification notification(String payload) {
+        PGNotification notification = mock(PGNotification.class);
+        when(notification.getParameter()).thenReturn(payload);
+        return notification;
+    }
+}
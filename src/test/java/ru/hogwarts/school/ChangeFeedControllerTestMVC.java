@@ -0,0 +1,48 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.controllers.ChangeFeedController;
+import ru.hogwarts.school.services.ChangeFeedService;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ChangeFeedController.class)
+public class ChangeFeedControllerTestMVC {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ChangeFeedService changeFeedService;
+
+    @Test
+    void shouldOpenStudentChangeStream() throws Exception {
+        when(changeFeedService.subscribeToStudents(null)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/student/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+
+        verify(changeFeedService, times(1)).subscribeToStudents(null);
+    }
+
+    @Test
+    void shouldPassLastEventIdWhenResumingFacultyChanges() throws Exception {
+        when(changeFeedService.subscribeToFaculties("abc-42")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/faculty/changes")
+                        .header("Last-Event-ID", "abc-42")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(changeFeedService, times(1)).subscribeToFaculties("abc-42");
+    }
+}
@@ -0,0 +1,90 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.cache.ChangeType;
+import ru.hogwarts.school.feed.ChangeFeed;
+import ru.hogwarts.school.feed.FeedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ChangeFeedTest {
+
+    private final List<RecordingEmitter> emitters = Collections.synchronizedList(new ArrayList<>());
+    private final ChangeFeed feed = new ChangeFeed("student", 10_000, 10_000, Runnable::run) {
+        @Override
+        protected SseEmitter createEmitter(long timeoutMillis) {
+            RecordingEmitter emitter = new RecordingEmitter();
+            emitters.add(emitter);
+            return emitter;
+        }
+    };
+
+    @Test
+    void shouldReplayEventsAfterLastEventIdAndThenDeliverNewOnes() {
+        RecordingEmitter first = subscribe(null);
+        feed.publish(ChangeType.CREATED, 1L, null);
+        feed.publish(ChangeType.UPDATED, 1L, null);
+        feed.publish(ChangeType.DELETED, 1L, null);
+
+        RecordingEmitter resumed = subscribe(first.events.get(0).id());
+        feed.publish(ChangeType.CREATED, 2L, null);
+
+        assertEquals(List.of(ChangeType.UPDATED, ChangeType.DELETED, ChangeType.CREATED),
+                resumed.events.stream().map(FeedEvent::type).toList());
+        assertEquals(first.events.subList(1, 4), resumed.events.subList(0, 3));
+    }
+
+    @Test
+    void shouldResetClientResumingFromAnotherEpoch() {
+        RecordingEmitter resumed = subscribe("unknown-5");
+
+        assertEquals(1, resumed.events.size());
+        assertEquals(ChangeType.RESET, resumed.events.get(0).type());
+    }
+
+    @Test
+    void shouldKeepReplayAheadOfEventsPublishedWhileSubscribing() throws Exception {
+        RecordingEmitter first = subscribe(null);
+        feed.publish(ChangeType.UPDATED, 1L, null);
+        String lastEventId = first.events.get(0).id();
+
+        Thread publisher = new Thread(() -> {
+            for (long i = 2; i <= 5_000; i++) {
+                feed.publish(ChangeType.UPDATED, i, null);
+            }
+        });
+        publisher.start();
+        Thread.sleep(1);
+        RecordingEmitter resumed = subscribe(lastEventId);
+        publisher.join();
+
+        List<Long> ids = resumed.events.stream().map(FeedEvent::entityId).toList();
+        assertEquals(4_999, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i + 2L, ids.get(i));
+        }
+    }
+
+    private RecordingEmitter subscribe(String lastEventId) {
+        feed.subscribe(lastEventId, 60_000);
+        return emitters.get(emitters.size() - 1);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<FeedEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            builder.build().stream()
+                    .filter(data -> MediaType.APPLICATION_JSON.equals(data.getMediaType()))
+                    .map(data -> (FeedEvent) data.getData())
+                    .forEach(events::add);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.hogwarts.school;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import ru.hogwarts.school.web.ChannelWriteListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class ChannelWriteListenerTest {
+
+    private static final byte[] AVATAR = "0123456789abcdef".getBytes();
+
+    private final AsyncContext asyncContext = mock(AsyncContext.class);
+    private final ServletOutputStream out = mock(ServletOutputStream.class);
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final ClosingChannel channel = new ClosingChannel(Channels.newChannel(new ByteArrayInputStream(AVATAR)));
+    private final List<Long> finished = new ArrayList<>();
+
+    @Test
+    void shouldWriteOnlyWhileTheOutputIsReadyAndResumeWhenItDrains() throws Exception {
+        WriteListener listener = stream(4);
+
+        when(out.isReady()).thenReturn(true, false);
+        listener.onWritePossible();
+
+        assertArrayEquals("0123".getBytes(), written.toByteArray());
+        assertTrue(channel.isOpen());
+        assertTrue(finished.isEmpty());
+
+        when(out.isReady()).thenReturn(true, true, false);
+        listener.onWritePossible();
+
+        assertArrayEquals("0123456789ab".getBytes(), written.toByteArray());
+        verify(asyncContext, never()).complete();
+
+        when(out.isReady()).thenReturn(true);
+        listener.onWritePossible();
+
+        assertArrayEquals(AVATAR, written.toByteArray());
+        assertFalse(channel.isOpen());
+        assertEquals(List.of((long) AVATAR.length), finished);
+        verify(asyncContext).complete();
+    }
+
+    @Test
+    void shouldCloseTheChannelWhenWritingFails() throws Exception {
+        WriteListener listener = stream(4);
+        when(out.isReady()).thenReturn(true, false);
+        listener.onWritePossible();
+
+        listener.onError(new IOException("connection reset"));
+
+        assertFalse(channel.isOpen());
+        assertEquals(List.of(4L), finished);
+        verify(asyncContext).complete();
+    }
+
+    @Test
+    void shouldCloseTheTransferOnTimeoutOnlyOnce() throws Exception {
+        stream(4);
+        ArgumentCaptor<AsyncListener> asyncListener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(asyncListener.capture());
+        AsyncEvent event = new AsyncEvent(asyncContext);
+
+        asyncListener.getValue().onTimeout(event);
+        asyncListener.getValue().onComplete(event);
+
+        assertFalse(channel.isOpen());
+        assertEquals(1, channel.closes);
+        assertEquals(List.of(0L), finished);
+        verify(asyncContext, times(1)).complete();
+    }
+
+    private WriteListener stream(int chunkSize) throws IOException {
+        ServletResponse response = mock(ServletResponse.class);
+        when(asyncContext.getResponse()).thenReturn(response);
+        when(response.getOutputStream()).thenReturn(out);
+        doAnswer(invocation -> {
+            written.write(invocation.<byte[]>getArgument(0), invocation.<Integer>getArgument(1),
+                    invocation.<Integer>getArgument(2));
+            return null;
+        }).when(out).write(any(byte[].class), anyInt(), anyInt());
+
+        ChannelWriteListener.stream(asyncContext, channel, chunkSize, finished::add);
+
+        ArgumentCaptor<WriteListener> listener = ArgumentCaptor.forClass(WriteListener.class);
+        verify(out).setWriteListener(listener.capture());
+        return listener.getValue();
+    }
+
+    private static final class ClosingChannel implements ReadableByteChannel {
+        private final ReadableByteChannel delegate;
+        private int closes;
+
+        ClosingChannel(ReadableByteChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closes++;
+            delegate.close();
+        }
+    }
+}
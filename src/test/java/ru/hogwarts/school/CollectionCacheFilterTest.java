@@ -0,0 +1,109 @@
+package ru.hogwarts.school;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.hogwarts.school.datasource.ReadYourWrites;
+import ru.hogwarts.school.web.CollectionCacheFilter;
+import ru.hogwarts.school.web.TableVersion;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CollectionCacheFilterTest {
+
+    private final TableVersion tableVersion = mock(TableVersion.class);
+    private CollectionCacheFilter filter = new CollectionCacheFilter(tableVersion, 16, 64 * 1024);
+    private final AtomicInteger handlerCalls = new AtomicInteger();
+
+    @Test
+    void shouldAnswerNotModifiedWithoutCallingHandler() throws Exception {
+        when(tableVersion.current()).thenReturn(7L);
+        MockHttpServletResponse first = perform(get());
+        String etag = first.getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest revalidation = get();
+        revalidation.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse second = perform(revalidation);
+
+        assertEquals(304, second.getStatus());
+        assertEquals(etag, second.getHeader(HttpHeaders.ETAG));
+        assertEquals(1, handlerCalls.get());
+    }
+
+    @Test
+    void shouldServeCachedGzipUntilVersionChanges() throws Exception {
+        when(tableVersion.current()).thenReturn(7L);
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        perform(request);
+        MockHttpServletResponse cached = perform(request);
+
+        assertEquals(200, cached.getStatus());
+        assertEquals("gzip", cached.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(1, handlerCalls.get());
+
+        when(tableVersion.current()).thenReturn(8L);
+        MockHttpServletResponse plain = perform(get());
+
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(2, handlerCalls.get());
+    }
+
+    @Test
+    void shouldNotKeepBodiesLargerThanAnEighthOfTheBudget() throws Exception {
+        filter = new CollectionCacheFilter(tableVersion, 1024, 256);
+        when(tableVersion.current()).thenReturn(7L);
+        perform(get());
+        MockHttpServletResponse second = perform(get());
+
+        assertEquals(200, second.getStatus());
+        assertEquals(2, handlerCalls.get());
+    }
+
+    @Test
+    void shouldPassRequestsPinnedToThePrimaryThrough() throws Exception {
+        when(tableVersion.current()).thenReturn(7L);
+        perform(get());
+
+        ReadYourWrites.pinToPrimary();
+        try {
+            MockHttpServletResponse pinned = perform(get());
+
+            assertNull(pinned.getHeader(HttpHeaders.ETAG));
+            assertEquals(2, handlerCalls.get());
+        } finally {
+            ReadYourWrites.clear();
+        }
+        verify(tableVersion, times(1)).current();
+    }
+
+    private MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/faculty");
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                handlerCalls.incrementAndGet();
+                resp.setContentType("application/json");
+                resp.getWriter().write("[{\"id\":1,\"name\":\"Gryffindor\",\"colour\":\"red\"}]");
+            }
+        }));
+        return response;
+    }
+}
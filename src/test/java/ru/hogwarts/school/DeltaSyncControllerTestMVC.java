@@ -0,0 +1,73 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.hogwarts.school.controllers.DeltaSyncController;
+import ru.hogwarts.school.dto.DeltaCursor;
+import ru.hogwarts.school.dto.DeltaResponse;
+import ru.hogwarts.school.exceptions.DeltaExpiredException;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.services.DeltaSyncService;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(DeltaSyncController.class)
+public class DeltaSyncControllerTestMVC {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private DeltaSyncService deltaSyncService;
+
+    @Test
+    void shouldReturnChangedAndDeletedStudentsSinceVersion() throws Exception {
+        Student student = new Student();
+        student.setId(1L);
+        student.setName("Harry");
+        when(deltaSyncService.getStudentDelta(new DeltaCursor(900L, 10L), 500))
+                .thenReturn(new DeltaResponse<>(new DeltaCursor(901L, 12L), false, List.of(student), List.of(7L)));
+
+        mockMvc.perform(get("/student/delta").param("since", "900-10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cursor").value("901-12"))
+                .andExpect(jsonPath("$.upserts[0].name").value("Harry"))
+                .andExpect(jsonPath("$.deleted[0]").value(7));
+    }
+
+    @Test
+    void shouldReturnGoneWhenTombstonesWerePurged() throws Exception {
+        when(deltaSyncService.getStudentDelta(new DeltaCursor(900L, 3L), 500))
+                .thenThrow(new DeltaExpiredException("resync"));
+
+        mockMvc.perform(get("/student/delta").param("since", "900-3"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void shouldStartFromTheBeginningWithoutCursor() throws Exception {
+        when(deltaSyncService.getFacultyDelta(DeltaCursor.START, 500))
+                .thenReturn(new DeltaResponse<>(DeltaCursor.START, false, List.of(), List.of()));
+
+        mockMvc.perform(get("/faculty/delta"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cursor").value("0-0"));
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() throws Exception {
+        mockMvc.perform(get("/student/delta").param("since", "12"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/student/delta").param("since", "-1-2"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(deltaSyncService);
+    }
+}
@@ -0,0 +1,148 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.DeltaCursor;
+import ru.hogwarts.school.dto.DeltaResponse;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.services.DeltaSyncService;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the configured database with the Liquibase triggers in place, so the schema is only validated.
+ */
+@SpringBootTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+public class DeltaSyncServiceTest {
+
+    private final String prefix = "delta-" + UUID.randomUUID() + "-";
+
+    @Autowired
+    private DeltaSyncService deltaSyncService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM student WHERE name LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void shouldNotMoveCursorPastTransactionThatCommitsLater() throws Exception {
+        DeltaCursor cursor = currentCursor();
+        CountDownLatch firstWritten = new CountDownLatch(1);
+        CountDownLatch commitFirst = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> inTransaction(() -> {
+            insertStudent("first");
+            firstWritten.countDown();
+            await(commitFirst);
+        }));
+        await(firstWritten);
+        // writers do not wait for each other, the second one commits while the first is still open
+        inTransaction(() -> insertStudent("second"));
+
+        DeltaResponse<Student> between = deltaSyncService.getStudentDelta(cursor, 100);
+        assertThat(names(between)).isEmpty();
+
+        commitFirst.countDown();
+        first.get(10, TimeUnit.SECONDS);
+
+        DeltaResponse<Student> after = deltaSyncService.getStudentDelta(between.cursor(), 100);
+        assertThat(names(after)).containsExactly(prefix + "first", prefix + "second");
+    }
+
+    @Test
+    void shouldLetConcurrentMultiRowWritersFinishAndHandOutAllTheirRows() throws Exception {
+        long harry = insertStudentAndGetId("harry");
+        long ron = insertStudentAndGetId("ron");
+        DeltaCursor cursor = currentCursor();
+        CountDownLatch aWrote = new CountDownLatch(1);
+        CountDownLatch bWrote = new CountDownLatch(1);
+        CountDownLatch commitA = new CountDownLatch(1);
+
+        CompletableFuture<Void> writerA = CompletableFuture.runAsync(() -> inTransaction(() -> {
+            renameStudent(harry, "harry-by-a");
+            aWrote.countDown();
+            await(bWrote);
+            // waits for the row lock B holds on ron
+            renameStudent(ron, "ron-by-a");
+            await(commitA);
+        }));
+        CompletableFuture<Void> writerB = CompletableFuture.runAsync(() -> inTransaction(() -> {
+            await(aWrote);
+            renameStudent(ron, "ron-by-b");
+            bWrote.countDown();
+            insertStudent("hermione-by-b");
+        }));
+
+        writerB.get(10, TimeUnit.SECONDS);
+        DeltaResponse<Student> between = deltaSyncService.getStudentDelta(cursor, 100);
+        // B committed, but A took its transaction id first and is still open
+        assertThat(names(between)).isEmpty();
+
+        commitA.countDown();
+        writerA.get(10, TimeUnit.SECONDS);
+
+        DeltaResponse<Student> after = deltaSyncService.getStudentDelta(between.cursor(), 100);
+        assertThat(names(after)).containsExactly(prefix + "harry-by-a", prefix + "ron-by-a", prefix + "hermione-by-b");
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+    }
+
+    private void insertStudent(String name) {
+        jdbcTemplate.update("INSERT INTO student (name, age, version) VALUES (?, 11, 0)", prefix + name);
+    }
+
+    private long insertStudentAndGetId(String name) {
+        return jdbcTemplate.queryForObject("INSERT INTO student (name, age, version) VALUES (?, 11, 0) RETURNING id",
+                Long.class, prefix + name);
+    }
+
+    private void renameStudent(long id, String name) {
+        jdbcTemplate.update("UPDATE student SET name = ? WHERE id = ?", prefix + name, id);
+    }
+
+    // every transaction that writes after this gets a larger id than any row written so far
+    private DeltaCursor currentCursor() {
+        return jdbcTemplate.query("SELECT row_xid, row_version FROM student " +
+                                "ORDER BY row_xid DESC, row_version DESC LIMIT 1",
+                        (rs, rowNum) -> new DeltaCursor(rs.getLong(1), rs.getLong(2)))
+                .stream().findFirst().orElse(DeltaCursor.START);
+    }
+
+    private List<String> names(DeltaResponse<Student> delta) {
+        return delta.upserts().stream()
+                .map(Student::getName)
+                .filter(name -> name.startsWith(prefix))
+                .toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out waiting for the other transaction");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.hogwarts.school;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares JSON and CBOR for a large student list: payload size and encode/decode time per list.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class EncodingBenchmarkTest {
+
+    private static final int STUDENTS = 10_000;
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+    private static final TypeReference<List<Student>> STUDENT_LIST = new TypeReference<>() {
+    };
+
+    @Test
+    void compareJsonAndCborForStudentList() throws Exception {
+        List<Student> students = createStudents();
+        ObjectMapper json = new ObjectMapper();
+        ObjectMapper cbor = new CBORMapper();
+
+        Measurement jsonResult = measure(json, students);
+        Measurement cborResult = measure(cbor, students);
+
+        System.out.printf("json: %,d bytes, encode %,d us, decode %,d us%n",
+                jsonResult.bytes(), jsonResult.encodeMicros(), jsonResult.decodeMicros());
+        System.out.printf("cbor: %,d bytes, encode %,d us, decode %,d us%n",
+                cborResult.bytes(), cborResult.encodeMicros(), cborResult.decodeMicros());
+
+        assertTrue(cborResult.bytes() < jsonResult.bytes());
+    }
+
+    private Measurement measure(ObjectMapper mapper, List<Student> students) throws Exception {
+        byte[] payload = mapper.writeValueAsBytes(students);
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(students), STUDENT_LIST);
+        }
+
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            payload = mapper.writeValueAsBytes(students);
+            long encoded = System.nanoTime();
+            List<Student> decoded = mapper.readValue(payload, STUDENT_LIST);
+            decodeNanos += System.nanoTime() - encoded;
+            encodeNanos += encoded - start;
+            assertEquals(students.size(), decoded.size());
+        }
+        return new Measurement(payload.length, encodeNanos / MEASURED_ROUNDS / 1000, decodeNanos / MEASURED_ROUNDS / 1000);
+    }
+
+    private List<Student> createStudents() {
+        String[] names = {"Gryffindor", "Hufflepuff", "Ravenclaw", "Slytherin"};
+        String[] colours = {"red", "yellow", "blue", "green"};
+        List<Faculty> faculties = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            Faculty faculty = new Faculty();
+            faculty.setId((long) i + 1);
+            faculty.setName(names[i]);
+            faculty.setColour(colours[i]);
+            faculties.add(faculty);
+        }
+
+        List<Student> students = new ArrayList<>(STUDENTS);
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = new Student();
+            student.setId((long) i + 1);
+            student.setName("Student" + i);
+            student.setSurname("Surname" + i);
+            student.setAge(11 + i % 7);
+            student.setFaculty(faculties.get(i % faculties.size()));
+            students.add(student);
+        }
+        return students;
+    }
+
+    private record Measurement(int bytes, long encodeMicros, long decodeMicros) {
+    }
+}
@@ -0,0 +1,53 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.cache.EntityCache;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class EntityCacheTest {
+
+    private final EntityCache<String> cache = new EntityCache<>("test", 2);
+
+    @Test
+    void shouldCacheLoadedValueWhenNothingWasEvictedMeanwhile() {
+        long stamp = cache.stamp();
+        cache.putIfUnchanged(1L, "Harry", stamp);
+
+        assertEquals("Harry", cache.get(1L));
+    }
+
+    @Test
+    void shouldDropValueLoadedBeforeAnEviction() {
+        long stamp = cache.stamp();
+        // a change to any entry may have raced with the load, so the loaded value is not trusted
+        cache.evict(2L);
+        cache.putIfUnchanged(1L, "stale Harry", stamp);
+
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void shouldDropValueLoadedBeforeAConditionalEviction() {
+        cache.putIfUnchanged(2L, "Ron", cache.stamp());
+        long stamp = cache.stamp();
+        cache.evictIf(value -> false);
+        cache.putIfUnchanged(1L, "stale Harry", stamp);
+
+        assertNull(cache.get(1L));
+        assertEquals("Ron", cache.get(2L));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedBeyondMaxSize() {
+        cache.putIfUnchanged(1L, "Harry", cache.stamp());
+        cache.putIfUnchanged(2L, "Ron", cache.stamp());
+        cache.get(1L);
+        cache.putIfUnchanged(3L, "Hermione", cache.stamp());
+
+        assertEquals(List.of(1L, 3L), cache.keys());
+    }
+}
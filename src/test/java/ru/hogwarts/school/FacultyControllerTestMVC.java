@@ -3,10 +3,12 @@ package ru.hogwarts.school;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.hogwarts.school.controllers.FacultyController;
+import ru.hogwarts.school.dto.FacultyPatch;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.services.FacultyService;
@@ -14,6 +16,7 @@ import ru.hogwarts.school.services.FacultyService;
 import java.util.Collection;
 import java.util.List;
 import java.util.Collections;
+import java.util.Map;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -227,4 +230,28 @@ public class FacultyControllerTestMVC {
         mockMvc.perform(get("/faculty/999/students"))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldPatchFacultyAndReturnNewVersion() throws Exception {
+        FacultyPatch patch = new FacultyPatch(null, "Scarlet", 0L);
+        when(facultyService.patchFaculty(1L, patch, 0L)).thenReturn(1L);
+
+        mockMvc.perform(patch("/faculty/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"colour\":\"Scarlet\",\"version\":0}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    }
+
+    @Test
+    void shouldReturnOnlyRequestedFacultyFields() throws Exception {
+        when(facultyService.getFacultyFieldsById(1L, "id,name")).thenReturn(Map.of("id", 1L, "name", "Gryffindor"));
+
+        mockMvc.perform(get("/faculty/1").param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Gryffindor"))
+                .andExpect(jsonPath("$.colour").doesNotExist());
+
+        verify(facultyService, never()).findFaculty(anyLong());
+    }
+}
@@ -0,0 +1,70 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.hogwarts.school.storage.AvatarStorage;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileSystemAvatarStorageTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplaceAvatarWithoutLeavingTempFilesUnderConcurrentUploads() throws Exception {
+        FileSystemAvatarStorage storage = new FileSystemAvatarStorage(directory);
+        List<byte[]> contents = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            byte[] content = new byte[64 * 1024];
+            Arrays.fill(content, (byte) i);
+            contents.add(content);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> uploads = new ArrayList<>();
+            for (byte[] content : contents) {
+                Callable<String> upload = () -> storage.store(1L, "png", new ByteArrayInputStream(content), content.length);
+                uploads.add(executor.submit(upload));
+            }
+            for (Future<String> upload : uploads) {
+                assertEquals(directory.resolve("1.png").toString(), upload.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        byte[] stored = Files.readAllBytes(directory.resolve("1.png"));
+        assertTrue(contents.stream().anyMatch(content -> Arrays.equals(content, stored)));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void shouldListStoredAvatarsByTheirLocation() throws Exception {
+        FileSystemAvatarStorage storage = new FileSystemAvatarStorage(directory);
+        String first = storage.store(1L, "png", new ByteArrayInputStream(new byte[]{1}), 1);
+        String second = storage.store(2L, "jpg", new ByteArrayInputStream(new byte[]{2}), 1);
+
+        try (Stream<AvatarStorage.StoredObject> objects = storage.list()) {
+            assertEquals(List.of(first, second),
+                    objects.map(AvatarStorage.StoredObject::location).sorted().toList());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.hogwarts.school.controllers.FlightRecorderController;
+import ru.hogwarts.school.dto.RecordingStatus;
+import ru.hogwarts.school.exceptions.RecordingAlreadyRunningException;
+import ru.hogwarts.school.services.FlightRecorderService;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(FlightRecorderController.class)
+public class FlightRecorderControllerTestMVC {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private FlightRecorderService flightRecorderService;
+
+    @Test
+    void shouldStartRecording() throws Exception {
+        when(flightRecorderService.start(Duration.ofMinutes(10)))
+                .thenReturn(new RecordingStatus("RUNNING", Instant.now(), 0));
+
+        mockMvc.perform(post("/admin/jfr/start").param("maxAgeMinutes", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+
+        verify(flightRecorderService, times(1)).start(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void shouldReturnConflictWhenRecordingAlreadyRunning() throws Exception {
+        when(flightRecorderService.start(any())).thenThrow(
+                new RecordingAlreadyRunningException(new RecordingStatus("RUNNING", Instant.now(), 1024)));
+
+        mockMvc.perform(post("/admin/jfr/start"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenStoppingWithoutRecording() throws Exception {
+        when(flightRecorderService.stop()).thenReturn(null);
+
+        mockMvc.perform(post("/admin/jfr/stop"))
+                .andExpect(status().isNotFound());
+    }
+}
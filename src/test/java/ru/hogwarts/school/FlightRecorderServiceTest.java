@@ -0,0 +1,30 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.RecordingStatus;
+import ru.hogwarts.school.exceptions.RecordingAlreadyRunningException;
+import ru.hogwarts.school.services.FlightRecorderService;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FlightRecorderServiceTest {
+
+    @Test
+    void shouldKeepRunningRecordingWhenStartedAgain() {
+        FlightRecorderService service = new FlightRecorderService();
+        try {
+            RecordingStatus first = service.start(Duration.ofMinutes(1));
+
+            assertThrows(RecordingAlreadyRunningException.class, () -> service.start(Duration.ofMinutes(1)));
+
+            RecordingStatus current = service.getStatus();
+            assertEquals("RUNNING", current.state());
+            assertEquals(first.startedAt(), current.startedAt());
+        } finally {
+            service.stop();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ru.hogwarts.school;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.services.OrphanAvatarCollector;
+import ru.hogwarts.school.services.StudentService;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class OrphanAvatarCollectorTest {
+
+    @TempDir
+    Path directory;
+
+    private final AvatarRepository avatarRepository = mock(AvatarRepository.class);
+    private final StudentService studentService = mock(StudentService.class);
+    private FileSystemAvatarStorage storage;
+    private OrphanAvatarCollector collector;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storage = new FileSystemAvatarStorage(directory);
+        Connection lockConnection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet locked = mock(ResultSet.class);
+        when(lockConnection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(locked);
+        when(locked.next()).thenReturn(true);
+        when(locked.getBoolean(1)).thenReturn(true);
+
+        collector = new OrphanAvatarCollector(avatarRepository, storage, studentService, new DataSourceProperties(),
+                new SimpleMeterRegistry(), 100, 0, 60, false) {
+            @Override
+            protected Connection openLockConnection() {
+                return lockConnection;
+            }
+        };
+        ReflectionTestUtils.setField(collector, "enabled", true);
+    }
+
+    @Test
+    void shouldKeepFileReferencedUnderAnotherSpellingOfItsPath() throws Exception {
+        String location = storeOld(1L, "png");
+        String spelledDifferently = directory.resolve("nested").resolve("..").resolve("1.png").toString();
+        when(avatarRepository.findFilePathsByStudentIdIn(anyCollection())).thenReturn(List.of(spelledDifferently));
+
+        collector.collect();
+
+        verify(studentService, never()).deleteUnreferencedAvatar(anyLong(), anyString());
+        assertTrue(Files.exists(Path.of(location)));
+    }
+
+    @Test
+    void shouldDeleteUnreferencedFileThroughTheStudentService() throws Exception {
+        String current = storeOld(1L, "png");
+        String previous = storeOld(1L, "jpg");
+        when(avatarRepository.findFilePathsByStudentIdIn(anyCollection())).thenReturn(List.of(current));
+
+        collector.collect();
+
+        verify(studentService).deleteUnreferencedAvatar(1L, previous);
+        verify(studentService, never()).deleteUnreferencedAvatar(1L, current);
+    }
+
+    @Test
+    void shouldLeaveFilesNotStoredForAStudentAndRecentUploadsAlone() throws Exception {
+        Path foreign = Files.writeString(directory.resolve("README.txt"), "not an avatar");
+        Files.setLastModifiedTime(foreign, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+        storage.store(2L, "png", new ByteArrayInputStream(new byte[]{2}), 1);
+        when(avatarRepository.findFilePathsByStudentIdIn(anyCollection())).thenReturn(List.of());
+
+        collector.collect();
+
+        verify(studentService, never()).deleteUnreferencedAvatar(anyLong(), anyString());
+    }
+
+    private String storeOld(Long studentId, String extension) throws IOException {
+        String location = storage.store(studentId, extension, new ByteArrayInputStream(new byte[]{1}), 1);
+        Files.setLastModifiedTime(Path.of(location), FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+        return location;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.hogwarts.school.storage.PackFileAvatarStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PackFileAvatarStorageTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReadBackStoredAvatarsAfterRestart() throws IOException {
+        PackFileAvatarStorage storage = new PackFileAvatarStorage(directory, SEGMENT_SIZE, 0.5);
+        String kept = store(storage, 1L, "harry");
+        String deleted = store(storage, 2L, "ron");
+        storage.delete(deleted);
+
+        PackFileAvatarStorage reopened = new PackFileAvatarStorage(directory, SEGMENT_SIZE, 0.5);
+
+        assertArrayEquals("harry".getBytes(), read(reopened, kept));
+        assertThrows(NoSuchFileException.class, () -> reopened.open(deleted));
+    }
+
+    @Test
+    void shouldRejectAvatarWhoseRecordDoesNotFitASegment() throws IOException {
+        PackFileAvatarStorage storage = new PackFileAvatarStorage(directory, SEGMENT_SIZE, 0.5);
+        byte[] almostSegment = new byte[SEGMENT_SIZE - 1];
+
+        IOException error = assertThrows(IOException.class,
+                () -> storage.store(1L, "png", new ByteArrayInputStream(almostSegment), almostSegment.length));
+
+        assertTrue(error.getMessage().contains("does not fit a segment"));
+        String stored = store(storage, 2L, "luna");
+        assertArrayEquals("luna".getBytes(), read(storage, stored));
+    }
+
+    @Test
+    void shouldKeepLiveAvatarsWhenCompactingDeadSegments() throws IOException {
+        PackFileAvatarStorage storage = new PackFileAvatarStorage(directory, SEGMENT_SIZE, 0.5);
+        byte[] large = new byte[1500];
+        String survivor = store(storage, 1L, "hermione");
+        String first = storage.store(2L, "png", new ByteArrayInputStream(large), large.length);
+        String second = storage.store(3L, "png", new ByteArrayInputStream(large), large.length);
+        store(storage, 4L, "neville");
+        storage.delete(first);
+        storage.delete(second);
+        String third = storage.store(5L, "png", new ByteArrayInputStream(large), large.length);
+
+        storage.compact();
+        try (Stream<Path> segments = Files.list(directory)) {
+            assertEquals(1, segments.count());
+        }
+        PackFileAvatarStorage reopened = new PackFileAvatarStorage(directory, SEGMENT_SIZE, 0.5);
+
+        assertArrayEquals("hermione".getBytes(), read(reopened, survivor));
+        assertThrows(NoSuchFileException.class, () -> reopened.open(first));
+        assertThrows(NoSuchFileException.class, () -> reopened.open(second));
+        assertArrayEquals(large, read(reopened, third));
+    }
+
+    private static String store(PackFileAvatarStorage storage, Long studentId, String content) throws IOException {
+        byte[] bytes = content.getBytes();
+        return storage.store(studentId, "png", new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    private static byte[] read(PackFileAvatarStorage storage, String location) throws IOException {
+        try (ReadableByteChannel channel = storage.open(location);
+             InputStream is = Channels.newInputStream(channel)) {
+            return is.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.hogwarts.school.storage.AvatarStorage;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+import ru.hogwarts.school.storage.PackFileAvatarStorage;
+import ru.hogwarts.school.storage.PrefixRoutingAvatarStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrefixRoutingAvatarStorageTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldKeepServingFilesStoredBeforeSwitchingToPacks() throws IOException {
+        FileSystemAvatarStorage files = new FileSystemAvatarStorage(directory.resolve("avatars"));
+        String legacyLocation = store(files, 1L, "harry");
+        AvatarStorage storage = new PrefixRoutingAvatarStorage(
+                new PackFileAvatarStorage(directory.resolve("packs"), 4096, 0.5), files);
+
+        String packLocation = store(storage, 2L, "ron");
+
+        assertTrue(packLocation.startsWith(PackFileAvatarStorage.LOCATION_PREFIX));
+        assertEquals("harry", read(storage, legacyLocation));
+        assertEquals("ron", read(storage, packLocation));
+        try (Stream<AvatarStorage.StoredObject> stored = storage.list()) {
+            assertEquals(List.of(packLocation, legacyLocation),
+                    stored.map(AvatarStorage.StoredObject::location).toList());
+        }
+
+        storage.delete(legacyLocation);
+        assertFalse(Files.exists(Path.of(legacyLocation)));
+    }
+
+    private static String store(AvatarStorage storage, Long studentId, String content) throws IOException {
+        byte[] bytes = content.getBytes();
+        return storage.store(studentId, "png", new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    private static String read(AvatarStorage storage, String location) throws IOException {
+        try (InputStream in = Channels.newInputStream(storage.open(location))) {
+            return new String(in.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.cache.PreviewCache;
+import ru.hogwarts.school.cache.PreviewCache.Preview;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreviewCacheTest {
+
+    private final PreviewCache cache = new PreviewCache("test", 800);
+
+    @Test
+    void shouldTrimLeastRecentlyUsedPreviewsToTheByteBudget() {
+        cache.putIfUnchanged(1L, "image/png", new byte[100], cache.stamp());
+        cache.putIfUnchanged(2L, "image/png", new byte[100], cache.stamp());
+        for (long id = 3; id <= 8; id++) {
+            cache.get(1L);
+            cache.putIfUnchanged(id, "image/png", new byte[100], cache.stamp());
+        }
+        cache.putIfUnchanged(9L, "image/png", new byte[100], cache.stamp());
+
+        assertEquals(800, cache.getUsedBytes());
+        assertNotNull(cache.get(1L));
+        assertNull(cache.get(2L));
+    }
+
+    @Test
+    void shouldNotCachePreviewLoadedBeforeAnEviction() {
+        long stamp = cache.stamp();
+        cache.evict(2L);
+        Preview preview = cache.putIfUnchanged(1L, "image/png", new byte[]{1, 2, 3}, stamp);
+
+        assertEquals(3, preview.size());
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    @Test
+    void shouldReturnOversizedPreviewWithoutCachingIt() {
+        Preview preview = cache.putIfUnchanged(1L, "image/png", new byte[101], cache.stamp());
+
+        assertEquals(101, preview.size());
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    @Test
+    void shouldHandOutIndependentReadOnlyViews() {
+        cache.putIfUnchanged(1L, "image/png", new byte[]{1, 2, 3}, cache.stamp());
+
+        ByteBuffer first = cache.get(1L).data();
+        first.get();
+        ByteBuffer second = cache.get(1L).data();
+
+        assertTrue(second.isReadOnly());
+        assertEquals(3, second.remaining());
+        assertEquals(1, second.get());
+    }
+
+    @Test
+    void shouldReleaseBytesOfReplacedAndEvictedPreviews() {
+        cache.putIfUnchanged(1L, "image/png", new byte[50], cache.stamp());
+        cache.putIfUnchanged(1L, "image/png", new byte[70], cache.stamp());
+        assertEquals(70, cache.getUsedBytes());
+
+        cache.evict(1L);
+        assertEquals(0, cache.getUsedBytes());
+    }
+}
@@ -0,0 +1,174 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the ways of keeping avatar previews in PostgreSQL: large objects read through {@code Blob} as the
+ * old {@code @Lob} mapping did, and {@code bytea} with each column storage strategy. Prints the point read
+ * latency and the on-disk size of every layout. Needs a scratch database given by {@code BENCHMARK_JDBC_URL},
+ * {@code BENCHMARK_JDBC_USER} and {@code BENCHMARK_JDBC_PASSWORD}; run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class PreviewStorageBenchmarkTest {
+
+    private static final int ROWS = 2_000;
+    private static final int PREVIEW_BYTES = 24 * 1024;
+    private static final int WARM_UP_READS = 2_000;
+    private static final int MEASURED_READS = 10_000;
+
+    @Test
+    void compareLargeObjectAndByteaPreviews() throws Exception {
+        String url = System.getenv("BENCHMARK_JDBC_URL");
+        assumeTrue(url != null, "BENCHMARK_JDBC_URL is not set");
+
+        try (Connection connection = DriverManager.getConnection(url,
+                System.getenv("BENCHMARK_JDBC_USER"), System.getenv("BENCHMARK_JDBC_PASSWORD"))) {
+            report("large object", measureLargeObjects(connection));
+            for (String storage : new String[]{"EXTENDED", "EXTERNAL", "MAIN"}) {
+                report("bytea " + storage, measureBytea(connection, storage));
+            }
+        }
+    }
+
+    private Result measureLargeObjects(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_preview_lo");
+            statement.execute("CREATE TABLE bench_preview_lo (id bigint PRIMARY KEY, preview oid)");
+        }
+        try {
+            insert(connection, "INSERT INTO bench_preview_lo VALUES (?, lo_from_bytea(0, ?))");
+            long[] latencies = read(connection, "SELECT preview FROM bench_preview_lo WHERE id = ?", true);
+            long bytes = relationSize(connection, "bench_preview_lo") + largeObjectSize(connection);
+            return new Result(latencies, bytes);
+        } finally {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT lo_unlink(preview) FROM bench_preview_lo");
+                statement.execute("DROP TABLE bench_preview_lo");
+            }
+        }
+    }
+
+    private Result measureBytea(Connection connection, String storage) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_preview_bytea");
+            statement.execute("CREATE TABLE bench_preview_bytea (id bigint PRIMARY KEY, preview bytea)");
+            statement.execute("ALTER TABLE bench_preview_bytea ALTER COLUMN preview SET STORAGE " + storage);
+        }
+        try {
+            insert(connection, "INSERT INTO bench_preview_bytea VALUES (?, ?)");
+            long[] latencies = read(connection, "SELECT preview FROM bench_preview_bytea WHERE id = ?", false);
+            return new Result(latencies, relationSize(connection, "bench_preview_bytea"));
+        } finally {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE bench_preview_bytea");
+            }
+        }
+    }
+
+    private void insert(Connection connection, String sql) throws SQLException {
+        // random bytes stand in for JPEG and PNG data, which does not compress any further
+        Random random = new Random(42);
+        byte[] preview = new byte[PREVIEW_BYTES];
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            for (int id = 0; id < ROWS; id++) {
+                random.nextBytes(preview);
+                insert.setLong(1, id);
+                insert.setBytes(2, preview);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("VACUUM ANALYZE");
+        }
+    }
+
+    private long[] read(Connection connection, String sql, boolean largeObject) throws SQLException {
+        Random random = new Random(7);
+        long[] latencies = new long[MEASURED_READS];
+        try (PreparedStatement select = connection.prepareStatement(sql)) {
+            for (int i = 0; i < WARM_UP_READS + MEASURED_READS; i++) {
+                long start = System.nanoTime();
+                byte[] preview = readOne(connection, select, random.nextInt(ROWS), largeObject);
+                if (i >= WARM_UP_READS) {
+                    latencies[i - WARM_UP_READS] = System.nanoTime() - start;
+                }
+                assertEquals(PREVIEW_BYTES, preview.length);
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private byte[] readOne(Connection connection, PreparedStatement select, long id, boolean largeObject)
+            throws SQLException {
+        select.setLong(1, id);
+        if (!largeObject) {
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return rs.getBytes(1);
+            }
+        }
+        // large objects can only be read inside a transaction, just like Hibernate had to for @Lob
+        connection.setAutoCommit(false);
+        try (ResultSet rs = select.executeQuery()) {
+            rs.next();
+            Blob blob = rs.getBlob(1);
+            byte[] preview = blob.getBytes(1, (int) blob.length());
+            blob.free();
+            return preview;
+        } finally {
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private long relationSize(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_total_relation_size('" + table + "')")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * pg_largeobject is only readable by superusers; without access the large objects are not counted.
+     */
+    private long largeObjectSize(Connection connection) {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT coalesce(sum(pg_column_size(data)), 0) FROM pg_largeobject " +
+                     "WHERE loid IN (SELECT preview FROM bench_preview_lo)")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+
+    private void report(String layout, Result result) {
+        System.out.printf("%-16s p50 %,6d us, p99 %,6d us, size %,d KB%n", layout,
+                result.percentileMicros(0.50), result.percentileMicros(0.99), result.bytes() / 1024);
+    }
+
+    private record Result(long[] sortedLatencies, long bytes) {
+
+        long percentileMicros(double percentile) {
+            int index = (int) Math.ceil(sortedLatencies.length * percentile) - 1;
+            return sortedLatencies[index] / 1_000;
+        }
+    }
+}
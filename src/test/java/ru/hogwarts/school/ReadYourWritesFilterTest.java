@@ -0,0 +1,72 @@
+package ru.hogwarts.school;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.hogwarts.school.datasource.ReadYourWrites;
+import ru.hogwarts.school.datasource.ReadYourWritesFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadYourWritesFilterTest {
+
+    private static final String COOKIE_NAME = "hogwarts-primary-until";
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+
+    @Test
+    void shouldPinMutationsAndOpenTheStickinessWindow() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        long before = System.currentTimeMillis();
+
+        assertTrue(pinnedDuring(new MockHttpServletRequest("PATCH", "/student/1"), response));
+
+        Cookie cookie = response.getCookie(COOKIE_NAME);
+        assertNotNull(cookie);
+        assertTrue(Long.parseLong(cookie.getValue()) >= before + 5000);
+        assertEquals(5, cookie.getMaxAge());
+        assertFalse(ReadYourWrites.isPinnedToPrimary());
+    }
+
+    @Test
+    void shouldPinReadsWithinTheStickinessWindow() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/student/1");
+        request.setCookies(new Cookie(COOKIE_NAME, String.valueOf(System.currentTimeMillis() + 5000)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(pinnedDuring(request, response));
+        assertNull(response.getCookie(COOKIE_NAME));
+        assertFalse(ReadYourWrites.isPinnedToPrimary());
+    }
+
+    @Test
+    void shouldLeaveReadsUnpinnedOutsideTheWindow() throws Exception {
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/student/1");
+        expired.setCookies(new Cookie(COOKIE_NAME, String.valueOf(System.currentTimeMillis() - 1)));
+        MockHttpServletRequest malformed = new MockHttpServletRequest("GET", "/student/1");
+        malformed.setCookies(new Cookie(COOKIE_NAME, "soon"));
+
+        assertFalse(pinnedDuring(new MockHttpServletRequest("GET", "/student/1"), new MockHttpServletResponse()));
+        assertFalse(pinnedDuring(expired, new MockHttpServletResponse()));
+        assertFalse(pinnedDuring(malformed, new MockHttpServletResponse()));
+    }
+
+    private boolean pinnedDuring(MockHttpServletRequest request, MockHttpServletResponse response)
+            throws ServletException, IOException {
+        AtomicBoolean pinned = new AtomicBoolean();
+        FilterChain chain = (req, res) -> pinned.set(ReadYourWrites.isPinnedToPrimary());
+        filter.doFilter(request, response, chain);
+        return pinned.get();
+    }
+}
@@ -0,0 +1,130 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.hogwarts.school.datasource.ReadYourWrites;
+import ru.hogwarts.school.datasource.ReplicaHealthMonitor;
+import ru.hogwarts.school.datasource.ReplicaSelectingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ReplicaSelectingDataSourceTest {
+
+    private static final Duration MAX_LAG = Duration.ofMillis(1000);
+
+    private final Node primary = node(false, 0);
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.clear();
+    }
+
+    @Test
+    void shouldSendReadOnlyConnectionsToAHealthyReplica() throws SQLException {
+        Node replica = node(true, 0);
+        DataSource dataSource = routing(monitor(replica));
+
+        assertSame(replica.statement(), readOnlyStatement(dataSource));
+    }
+
+    @Test
+    void shouldKeepWritesOnThePrimary() throws SQLException {
+        DataSource dataSource = routing(monitor(node(true, 0)));
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertSame(primary.statement(), connection.createStatement());
+        }
+    }
+
+    @Test
+    void shouldKeepReadOnlyConnectionsOnThePrimaryWhenPinned() throws SQLException {
+        Node replica = node(true, 0);
+        DataSource dataSource = routing(monitor(replica));
+
+        ReadYourWrites.pinToPrimary();
+
+        assertSame(primary.statement(), readOnlyStatement(dataSource));
+        verify(replica.connection(), times(1)).createStatement();
+    }
+
+    @Test
+    void shouldFallBackToThePrimaryWhenNoReplicaIsHealthy() throws SQLException {
+        Node unreachable = node(true, 0);
+        when(unreachable.dataSource().getConnection()).thenThrow(new SQLException("connection refused"));
+        Node lagging = node(true, 5000);
+        Node promoted = node(false, 0);
+        ReplicaHealthMonitor monitor = monitor(unreachable, lagging, promoted);
+
+        assertNull(monitor.nextHealthyReplica());
+        assertSame(primary.statement(), readOnlyStatement(routing(monitor)));
+    }
+
+    @Test
+    void shouldReturnToAReplicaOnceItCatchesUp() throws SQLException {
+        Node replica = node(true, 5000);
+        when(replica.resultSet().getLong(2)).thenReturn(5000L, 0L);
+        ReplicaHealthMonitor monitor = monitor(replica);
+        DataSource dataSource = routing(monitor);
+
+        assertSame(primary.statement(), readOnlyStatement(dataSource));
+
+        monitor.checkReplicas();
+
+        assertSame(replica.statement(), readOnlyStatement(dataSource));
+    }
+
+    private ReplicaHealthMonitor monitor(Node... replicas) {
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(
+                Arrays.stream(replicas).map(Node::dataSource).toList(), MAX_LAG);
+        monitor.checkReplicas();
+        return monitor;
+    }
+
+    // wired like ReplicaRoutingConfiguration#dataSource
+    private DataSource routing(ReplicaHealthMonitor monitor) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary.dataSource());
+        proxy.setReadOnlyDataSource(new ReplicaSelectingDataSource(primary.dataSource(), monitor));
+        return proxy;
+    }
+
+    // the transaction manager marks the connection read-only before the first statement fetches the target
+    private static Statement readOnlyStatement(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            return connection.createStatement();
+        }
+    }
+
+    private static Node node(boolean inRecovery, long lagMillis) {
+        try {
+            ResultSet resultSet = mock(ResultSet.class);
+            when(resultSet.next()).thenReturn(true);
+            when(resultSet.getBoolean(1)).thenReturn(inRecovery);
+            when(resultSet.getLong(2)).thenReturn(lagMillis);
+            Statement statement = mock(Statement.class);
+            when(statement.executeQuery(anyString())).thenReturn(resultSet);
+            Connection connection = mock(Connection.class);
+            when(connection.createStatement()).thenReturn(statement);
+            DataSource dataSource = mock(DataSource.class);
+            when(dataSource.getConnection()).thenReturn(connection);
+            return new Node(dataSource, connection, statement, resultSet);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Node(DataSource dataSource, Connection connection, Statement statement, ResultSet resultSet) {
+    }
+}
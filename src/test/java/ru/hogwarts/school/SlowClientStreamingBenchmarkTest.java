@@ -0,0 +1,174 @@
+package ru.hogwarts.school;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.web.ChannelWriteListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Starts a Tomcat with few worker threads, keeps it busy with clients that download a large avatar very
+ * slowly, and measures the latency of a trivial API request meanwhile, once with blocking downloads and once
+ * with {@link ChannelWriteListener}. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class SlowClientStreamingBenchmarkTest {
+
+    private static final int WORKER_THREADS = 8;
+    private static final int SLOW_CLIENTS = 32;
+    private static final int API_REQUESTS = 20;
+    private static final Duration API_TIMEOUT = Duration.ofSeconds(1);
+    private static final byte[] AVATAR = new byte[4 * 1024 * 1024];
+
+    @Test
+    void apiLatencyHoldsWhileSlowClientsDownloadAvatars() throws Exception {
+        Result blocking = run(false);
+        Result async = run(true);
+
+        System.out.printf("blocking downloads: p50 %d ms, p99 %d ms, %d of %d API requests timed out%n",
+                blocking.p50Millis(), blocking.p99Millis(), blocking.timeouts(), API_REQUESTS);
+        System.out.printf("async downloads:    p50 %d ms, p99 %d ms, %d of %d API requests timed out%n",
+                async.p50Millis(), async.p99Millis(), async.timeouts(), API_REQUESTS);
+
+        assertEquals(0, async.timeouts());
+    }
+
+    private Result run(boolean async) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("tomcat").toString());
+        Connector connector = tomcat.getConnector();
+        connector.setPort(0);
+        connector.setProperty("maxThreads", String.valueOf(WORKER_THREADS));
+        connector.setProperty("socket.txBufSize", "8192");
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "avatar", new AvatarServlet(async)).setAsyncSupported(true);
+        context.addServletMappingDecoded("/avatar", "avatar");
+        Tomcat.addServlet(context, "api", new ApiServlet());
+        context.addServletMappingDecoded("/api", "api");
+        tomcat.start();
+
+        ExecutorService readers = Executors.newFixedThreadPool(SLOW_CLIENTS);
+        List<Socket> clients = new ArrayList<>();
+        try {
+            int port = connector.getLocalPort();
+            for (int i = 0; i < SLOW_CLIENTS; i++) {
+                Socket socket = new Socket();
+                socket.setReceiveBufferSize(4096);
+                socket.connect(new InetSocketAddress("localhost", port));
+                socket.getOutputStream().write("GET /avatar HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                clients.add(socket);
+                readers.execute(() -> readSlowly(socket));
+            }
+            Thread.sleep(500);
+            return measureApi(port);
+        } finally {
+            readers.shutdownNow();
+            for (Socket socket : clients) {
+                socket.close();
+            }
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    private Result measureApi(int port) throws Exception {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(API_TIMEOUT).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api"))
+                .timeout(API_TIMEOUT)
+                .build();
+        List<Long> latencies = new ArrayList<>();
+        int timeouts = 0;
+        for (int i = 0; i < API_REQUESTS; i++) {
+            long start = System.nanoTime();
+            try {
+                http.send(request, HttpResponse.BodyHandlers.discarding());
+                latencies.add((System.nanoTime() - start) / 1_000_000);
+            } catch (HttpTimeoutException e) {
+                timeouts++;
+            }
+        }
+        Collections.sort(latencies);
+        long p50 = latencies.isEmpty() ? -1 : latencies.get(latencies.size() / 2);
+        long p99 = latencies.isEmpty() ? -1 : latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+        return new Result(p50, p99, timeouts);
+    }
+
+    private static void readSlowly(Socket socket) {
+        byte[] buffer = new byte[1024];
+        try (InputStream in = socket.getInputStream()) {
+            while (in.read(buffer) >= 0) {
+                Thread.sleep(20);
+            }
+        } catch (IOException | InterruptedException e) {
+            // the run is over
+        }
+    }
+
+    private record Result(long p50Millis, long p99Millis, int timeouts) {
+    }
+
+    private static final class AvatarServlet extends HttpServlet {
+        private final boolean async;
+
+        AvatarServlet(boolean async) {
+            this.async = async;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            response.setContentType("image/png");
+            response.setContentLength(AVATAR.length);
+            ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(AVATAR));
+            if (async) {
+                AsyncContext asyncContext = request.startAsync();
+                asyncContext.setTimeout(0);
+                ChannelWriteListener.stream(asyncContext, channel, 16 * 1024, transferred -> {
+                });
+                return;
+            }
+            try (OutputStream out = response.getOutputStream()) {
+                Channels.newInputStream(channel).transferTo(out);
+            } catch (IOException e) {
+                // the client went away
+            }
+        }
+    }
+
+    private static final class ApiServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            response.setContentType("text/plain");
+            response.getWriter().write("ok");
+        }
+    }
+}
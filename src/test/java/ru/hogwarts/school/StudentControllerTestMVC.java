@@ -1,27 +1,46 @@
 package ru.hogwarts.school;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.cache.PreviewCache;
 import ru.hogwarts.school.controllers.StudentController;
+import ru.hogwarts.school.dto.BulkResult;
+import ru.hogwarts.school.dto.MultiGetResult;
+import ru.hogwarts.school.dto.StudentCard;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.StudentQuery;
+import ru.hogwarts.school.exceptions.UnknownFieldException;
+import ru.hogwarts.school.exceptions.VersionConflictException;
 import ru.hogwarts.school.model.Avatar;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.services.StudentService;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -250,11 +269,8 @@ public class StudentControllerTestMVC {
 
     @Test
     void shouldDownloadAvatarPreview() throws Exception {
-        Avatar avatar = new Avatar();
-        avatar.setMediaType("image/jpeg");
-        avatar.setPreview("fake-image-data".getBytes());
-
-        when(studentService.findStudentAvatar(1L)).thenReturn(avatar);
+        when(studentService.getAvatarPreview(1L)).thenReturn(
+                new PreviewCache.Preview("image/jpeg", ByteBuffer.wrap("fake-image-data".getBytes())));
 
         mockMvc.perform(get("/student/1/avatar/preview"))
                 .andExpect(status().isOk())
@@ -264,24 +280,56 @@ public class StudentControllerTestMVC {
 
     @Test
     void shouldReturnNotFoundWhenAvatarDoesNotExist() throws Exception {
-        when(studentService.findStudentAvatar(999L)).thenReturn(null);
+        when(studentService.getAvatarPreview(999L)).thenReturn(null);
 
         mockMvc.perform(get("/student/999/avatar/preview"))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void shouldStreamBatchOfPreviewsAsFrames() throws Exception {
+        doAnswer(invocation -> {
+            StudentService.PreviewSink sink = invocation.getArgument(1);
+            sink.accept(2L, new PreviewCache.Preview("image/png", ByteBuffer.wrap("second".getBytes())));
+            sink.accept(1L, new PreviewCache.Preview("image/jpeg", ByteBuffer.wrap("first".getBytes())));
+            return null;
+        }).when(studentService).streamAvatarPreviews(eq(List.of(2L, 1L, 3L)), any());
+
+        byte[] body = mockMvc.perform(get("/student/avatar/previews").param("ids", "2,1,3"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/vnd.hogwarts.previews"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        assertEquals(2L, in.readLong());
+        assertEquals("image/png", in.readUTF());
+        assertEquals("second", new String(in.readNBytes(in.readInt())));
+        assertEquals(1L, in.readLong());
+        assertEquals("image/jpeg", in.readUTF());
+        assertEquals("first", new String(in.readNBytes(in.readInt())));
+        assertEquals(-1L, in.readLong());
+        assertEquals(-1, in.read());
+    }
+
     @Test
     void shouldStreamAvatarSuccessfully() throws Exception {
         Avatar avatar = new Avatar();
         avatar.setFilePath("src/test/resources/test.jpg");
-        avatar.setFileSize(1024L);
+        avatar.setFileSize(10L);
         avatar.setMediaType("image/jpeg");
 
         when(studentService.findStudentAvatar(1L)).thenReturn(avatar);
-
-        mockMvc.perform(get("/student/1/avatar"))
+        when(studentService.openAvatar(avatar))
+                .thenReturn(Channels.newChannel(new ByteArrayInputStream("fake-image".getBytes())));
+
+        // mock responses have no non-blocking output, so this exercises the blocking fallback
+        mockMvc.perform(get("/student/1/avatar").with(request -> {
+                    request.setAsyncSupported(false);
+                    return request;
+                }))
                 .andExpect(status().isOk())
-                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"));
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andExpect(content().string("fake-image"));
 
         verify(studentService, times(1)).findStudentAvatar(1L);
     }
@@ -365,4 +413,179 @@ public class StudentControllerTestMVC {
                 .andExpect(jsonPath("$.totalElements").value(20))
                 .andExpect(jsonPath("$.totalPages").value(10));
     }
+
+    @Test
+    void shouldPatchStudentAndReturnNewVersion() throws Exception {
+        StudentPatch patch = new StudentPatch("Harry", null, null, null, 3L);
+        when(studentService.patchStudent(1L, patch, 3L)).thenReturn(4L);
+
+        mockMvc.perform(patch("/student/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Harry\",\"version\":3}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void shouldReturnConflictWhenPatchingStaleStudent() throws Exception {
+        StudentPatch patch = new StudentPatch(null, null, 17, null, null);
+        when(studentService.patchStudent(1L, patch, 2L)).thenThrow(new VersionConflictException("stale"));
+
+        mockMvc.perform(patch("/student/1")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\":17}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldRequireVersionWhenPatchingStudent() throws Exception {
+        mockMvc.perform(patch("/student/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\":17}"))
+                .andExpect(status().isPreconditionRequired());
+
+        verify(studentService, never()).patchStudent(anyLong(), any(), anyLong());
+    }
+
+    @Test
+    void shouldDeleteStudentsInBulkAndReportCounts() throws Exception {
+        when(studentService.deleteStudents(List.of(1L, 2L, 3L))).thenReturn(new BulkResult(3, 2));
+
+        mockMvc.perform(post("/student/bulk/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1,2,3]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students").value(3))
+                .andExpect(jsonPath("$.avatars").value(2));
+    }
+
+    @Test
+    void shouldRejectOversizedBulkDelete() throws Exception {
+        String ids = LongStream.rangeClosed(1, 1001)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(post("/student/bulk/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(ids))
+                .andExpect(status().isBadRequest());
+
+        verify(studentService, never()).deleteStudents(any());
+    }
+
+    @Test
+    void shouldRejectInvertedAgeRangeForBulkDelete() throws Exception {
+        mockMvc.perform(post("/student/bulk/delete-by-age")
+                        .param("min", "20")
+                        .param("max", "10"))
+                .andExpect(status().isBadRequest());
+
+        verify(studentService, never()).deleteStudentsByAgeBetween(anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldResolveManyStudentsByIdsInRequestOrder() throws Exception {
+        List<Long> ids = List.of(2L, 1L, 99L);
+        when(studentService.getStudentsByIds(ids)).thenReturn(new MultiGetResult<>(
+                List.of(createTestStudent(2L, "Ron", 15), createTestStudent(1L, "Harry", 15)), List.of(99L)));
+
+        mockMvc.perform(get("/student").param("ids", "2,1,99"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[0].name").value("Ron"))
+                .andExpect(jsonPath("$.found[1].name").value("Harry"))
+                .andExpect(jsonPath("$.missing[0]").value(99));
+
+        verify(studentService, never()).getAllStudents();
+    }
+
+    @Test
+    void shouldQueryStudentsWithCombinedFilters() throws Exception {
+        when(studentService.queryStudents(any(StudentQuery.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(createTestStudent(1L, "Harry", 15)), PageRequest.of(0, 20), 1));
+
+        mockMvc.perform(get("/student/query")
+                        .param("minAge", "11")
+                        .param("maxAge", "17")
+                        .param("namePrefix", "Ha")
+                        .param("sortBy", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("Harry"));
+
+        verify(studentService).queryStudents(
+                eq(new StudentQuery(null, 11, 17, "Ha", null, null)), any(Pageable.class));
+    }
+
+    @Test
+    void shouldRejectQueryWithUnknownSortField() throws Exception {
+        mockMvc.perform(get("/student/query").param("sortBy", "faculty.colour"))
+                .andExpect(status().isBadRequest());
+
+        verify(studentService, never()).queryStudents(any(), any());
+    }
+
+    @Test
+    void shouldRejectQueryWithUnknownSortDirection() throws Exception {
+        mockMvc.perform(get("/student/query").param("sortBy", "name").param("direction", "sideways"))
+                .andExpect(status().isBadRequest());
+
+        verify(studentService, never()).queryStudents(any(), any());
+    }
+
+    @Test
+    void shouldReturnStudentCardsPage() throws Exception {
+        StudentCard card = new StudentCard(1L, "Harry", "Potter", 15, 2L, "Gryffindor", "red", 7L, "image/png", 512L);
+        when(studentService.getStudentCards(0, 20)).thenReturn(new PageImpl<>(List.of(card), PageRequest.of(0, 20), 1));
+
+        mockMvc.perform(get("/student/cards"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].facultyName").value("Gryffindor"))
+                .andExpect(jsonPath("$.content[0].avatarUrl").value("/student/1/avatar"));
+    }
+
+    @Test
+    void shouldListOnlyRequestedStudentFields() throws Exception {
+        when(studentService.getStudentFields("id,age")).thenReturn(List.of(Map.of("id", 1L, "age", 15)));
+
+        mockMvc.perform(get("/student").param("fields", "id,age"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].age").value(15))
+                .andExpect(jsonPath("$[0].name").doesNotExist());
+
+        verify(studentService, never()).getAllStudents();
+        verify(studentService, never()).getStudentFields(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldPageRequestedStudentFieldsOnlyWhenAsked() throws Exception {
+        when(studentService.getStudentFields("id,age", 0, 5)).thenReturn(List.of(Map.of("id", 1L, "age", 15)));
+
+        mockMvc.perform(get("/student").param("fields", "id,age").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        verify(studentService, never()).getStudentFields("id,age");
+    }
+
+    @Test
+    void shouldRejectUnknownSparseField() throws Exception {
+        when(studentService.getStudentFieldsById(1L, "id,avatar"))
+                .thenThrow(new UnknownFieldException("Unknown field 'avatar'"));
+
+        mockMvc.perform(get("/student/1").param("fields", "id,avatar"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldEncodeStudentListAsCborWhenRequested() throws Exception {
+        when(studentService.getAllStudents()).thenReturn(List.of(createTestStudent(1L, "Harry", 15)));
+
+        byte[] body = mockMvc.perform(get("/student").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode students = new CBORMapper().readTree(body);
+        assertEquals("Harry", students.get(0).get("name").asText());
+    }
 }
@@ -0,0 +1,88 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.cache.ChangeBus;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.exceptions.FacultyNotFoundException;
+import ru.hogwarts.school.exceptions.VersionConflictException;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.services.StudentService;
+import ru.hogwarts.school.storage.AvatarStorage;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class StudentServiceTest {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final AvatarRepository avatarRepository = mock(AvatarRepository.class);
+    private final FacultyRepository facultyRepository = mock(FacultyRepository.class);
+    private final AvatarStorage avatarStorage = mock(AvatarStorage.class);
+    private final StudentService studentService = new StudentService(studentRepository, avatarRepository,
+            facultyRepository, mock(ChangeBus.class), avatarStorage, 100, 1024 * 1024, 4);
+
+    @Test
+    void shouldEditStudentWithoutVersionAsLastWriteWins() {
+        when(studentRepository.findById(1L)).thenReturn(Optional.of(student(1L, "Harry", 3L)));
+        when(studentRepository.saveAndFlush(any(Student.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Student saved = studentService.editStudent(student(1L, "Harold", null));
+
+        assertEquals("Harold", saved.getName());
+        assertEquals(3L, saved.getVersion());
+    }
+
+    @Test
+    void shouldRejectEditWithStaleVersion() {
+        when(studentRepository.findById(1L)).thenReturn(Optional.of(student(1L, "Harry", 3L)));
+
+        assertThrows(VersionConflictException.class, () -> studentService.editStudent(student(1L, "Harold", 2L)));
+        verify(studentRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void shouldRejectPatchToUnknownFaculty() {
+        when(facultyRepository.existsById(99L)).thenReturn(false);
+
+        assertThrows(FacultyNotFoundException.class,
+                () -> studentService.patchStudent(1L, new StudentPatch(null, null, null, 99L, null), 0));
+        verify(studentRepository, never()).patch(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void shouldNotDeleteStoredAvatarThatTheStudentStillReferences() throws Exception {
+        when(avatarRepository.findFilePathsByStudentIdIn(List.of(1L))).thenReturn(List.of("data/avatars/1.png"));
+        when(avatarStorage.isSameLocation("data/avatars/1.png", "./data/avatars/1.png")).thenReturn(true);
+
+        assertFalse(studentService.deleteUnreferencedAvatar(1L, "./data/avatars/1.png"));
+        verify(avatarStorage, never()).delete(anyString());
+    }
+
+    @Test
+    void shouldDeleteStoredAvatarThatNoRowReferences() throws Exception {
+        when(avatarRepository.findFilePathsByStudentIdIn(List.of(1L))).thenReturn(List.of("data/avatars/1.png"));
+
+        assertTrue(studentService.deleteUnreferencedAvatar(1L, "data/avatars/1.jpg"));
+        verify(avatarStorage).delete("data/avatars/1.jpg");
+    }
+
+    private static Student student(Long id, String name, Long version) {
+        Student student = new Student();
+        student.setId(id);
+        student.setName(name);
+        student.setVersion(version);
+        return student;
+    }
+}